@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the old regex based normalisation in SwearHandler with {@link TextNormaliser}.
+ * Run with {@code ./gradlew jmh}, the gc profiler reports the allocation per message as gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextNormaliserBenchmark {
+
+    private static final Pattern CLEAN_PATTERN = Pattern.compile("[^\\p{N}\\p{L} ]", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern NON_ASCII_PATTERN = Pattern.compile("([^\\p{ASCII}])");
+    private static final Map<String, String> REPLACE_TOKENS = new HashMap<>();
+
+    static {
+        REPLACE_TOKENS.put("\u0430", "a");
+        REPLACE_TOKENS.put("\u043a", "k");
+        REPLACE_TOKENS.put("\u0441", "c");
+        REPLACE_TOKENS.put("\u0443", "y");
+        REPLACE_TOKENS.put("\u0435", "e");
+        REPLACE_TOKENS.put("\u0445", "x");
+        REPLACE_TOKENS.put("\u0440", "p");
+        REPLACE_TOKENS.put("\u043e", "o");
+    }
+
+    @Param({
+            "Hey, does anyone know why my server keeps crashing when I join with Bedrock?",
+            "C\u00e9st tr\u00e8s bizarre, \u00e7a ne marche pas!!! :(",
+            "\u0441\u0443\u043a\u0430 \u0431\u043b\u044f\u0434\u044c test"
+    })
+    public String message;
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String input = message.toLowerCase();
+        String cleanInput = CLEAN_PATTERN.matcher(input).replaceAll("");
+        String cleanInputSpaces = CLEAN_PATTERN.matcher(input).replaceAll(" ");
+        String normalInput = Normalizer.normalize(input, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+
+        Matcher matcher = NON_ASCII_PATTERN.matcher(normalInput);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(sb, REPLACE_TOKENS.getOrDefault(matcher.group(1), matcher.group(1)));
+        }
+        matcher.appendTail(sb);
+
+        blackhole.consume(cleanInput);
+        blackhole.consume(cleanInputSpaces);
+        blackhole.consume(sb.toString());
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        TextNormaliser.Normalised normalised = TextNormaliser.normalise(message);
+
+        blackhole.consume(normalised.clean());
+        blackhole.consume(normalised.spaced());
+        blackhole.consume(normalised.folded());
+    }
+}
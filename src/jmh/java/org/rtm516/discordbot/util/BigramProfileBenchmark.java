@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scoring one query against a list of tag names, like the tag autocomplete does,
+ * with {@link DicesCoefficient} and with a {@link BigramProfile}.
+ * Run with {@code ./gradlew jmh}, the gc profiler reports the allocation per query as gc.alloc.rate.norm
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BigramProfileBenchmark {
+
+    private static final String[] TAGS = {
+            "bedrock", "floodgate", "geyser", "geyserconnect", "java", "proxy", "port", "port-forward",
+            "resource-packs", "skins", "velocity", "bungeecord", "spigot", "paper", "fabric", "viaversion",
+            "xbox", "authentication", "online-mode", "whitelist", "linking", "global-api", "custom-items", "logs"
+    };
+
+    @Param({ "gey", "floodgte", "port forwarding" })
+    public String query;
+
+    private BigramProfile profile;
+
+    @Setup
+    public void setup() {
+        profile = BigramProfile.ofIgnoreCase(query);
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String lowerQuery = query.toLowerCase();
+        for (String tag : TAGS) {
+            blackhole.consume(DicesCoefficient.diceCoefficientOptimized(lowerQuery, tag.toLowerCase()) > 0.2d);
+        }
+    }
+
+    @Benchmark
+    public void profileScore(Blackhole blackhole) {
+        for (String tag : TAGS) {
+            blackhole.consume(profile.score(tag) > 0.2d);
+        }
+    }
+
+    @Benchmark
+    public void profileThreshold(Blackhole blackhole) {
+        for (String tag : TAGS) {
+            blackhole.consume(profile.isAbove(tag, 0.2d));
+        }
+    }
+}
@@ -41,11 +41,15 @@ import net.dv8tion.jda.api.utils.MemberCachePolicy;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import net.dv8tion.jda.api.utils.messages.MessageRequest;
 import org.rtm516.discordbot.http.Server;
+import org.rtm516.discordbot.links.PhishingDomains;
 import org.rtm516.discordbot.listeners.*;
 import org.rtm516.discordbot.storage.AbstractStorageManager;
+import org.rtm516.discordbot.storage.AsyncStorageManager;
+import org.rtm516.discordbot.storage.CachedStorageManager;
 import org.rtm516.discordbot.storage.StorageType;
 import org.rtm516.discordbot.tags.TagsListener;
 import org.rtm516.discordbot.tags.TagsManager;
+import org.rtm516.discordbot.util.LogDispatcher;
 import org.rtm516.discordbot.util.PropertiesManager;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
@@ -64,6 +68,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class DiscordBot {
     // Instance Variables
@@ -73,8 +78,10 @@ public class DiscordBot {
     public static final List<ContextMenu> CONTEXT_MENUS;
 
     public static AbstractStorageManager storageManager;
+    public static AsyncStorageManager asyncStorageManager;
 
     private static ScheduledExecutorService generalThreadPool;
+    private static LogHandler logHandler;
 
     private static JDA jda;
     private static GitHub github;
@@ -156,8 +163,11 @@ public class DiscordBot {
         }
 
         try {
-            storageManager = storageType.getStorageManager().getDeclaredConstructor().newInstance();
+            // Keep preferences in memory so the listeners don't query the database for every message
+            storageManager = new CachedStorageManager(storageType.getStorageManager().getDeclaredConstructor().newInstance());
             storageManager.setupStorage();
+
+            asyncStorageManager = new AsyncStorageManager(storageManager, PropertiesManager.getDatabasePoolSize());
         } catch (Exception e) {
             LOGGER.error("Unable to create database link!", e);
             System.exit(1);
@@ -194,6 +204,12 @@ public class DiscordBot {
         // Setup the thread pool
         generalThreadPool = Executors.newScheduledThreadPool(5);
 
+        // Load the phishing domain list, this needs the thread pool for refreshing
+        PhishingDomains.init();
+
+        // Kept so the message log can be closed on shutdown
+        logHandler = new LogHandler();
+
         // Register JDA
         try {
             jda = JDABuilder.createDefault(PropertiesManager.getToken())
@@ -205,7 +221,7 @@ public class DiscordBot {
                     .setStatus(OnlineStatus.ONLINE)
                     .setEnableShutdownHook(true)
                     .addEventListeners(waiter,
-                            new LogHandler(),
+                            logHandler,
                             new SwearHandler(),
                             new PersistentRoleHandler(),
                             new FileHandler(),
@@ -213,6 +229,7 @@ public class DiscordBot {
                             new BadLinksHandler(),
                             new DeleteHandler(),
                             new AutoModHandler(),
+                            new RaidHandler(),
                             client.build(),
                             tagClient.build())
                     .build();
@@ -248,7 +265,11 @@ public class DiscordBot {
     }
 
     public static void shutdown() {
+        LOGGER.info("Sending remaining logs...");
+        LogDispatcher.drain(10, TimeUnit.SECONDS);
+        logHandler.close();
         LOGGER.info("Shutting down storage...");
+        asyncStorageManager.shutdown();
         storageManager.closeStorage();
         LOGGER.info("Shutting down thread pool...");
         generalThreadPool.shutdown();
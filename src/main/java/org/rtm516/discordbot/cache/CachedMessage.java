@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.cache;
+
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The parts of a {@link Message} needed to log edits and deletes, with the strings kept as UTF-8 bytes
+ */
+public final class CachedMessage {
+
+    /**
+     * Rough size of the object headers, fields and array headers
+     */
+    private static final int OVERHEAD = 96;
+
+    private final long authorId;
+    private final long channelId;
+    private final boolean bot;
+    private final byte[] authorTag;
+    private final byte[] avatarUrl;
+    private final byte[] content;
+
+    public CachedMessage(long authorId, long channelId, boolean bot, String authorTag, @Nullable String avatarUrl, String content) {
+        this(authorId, channelId, bot, authorTag.getBytes(StandardCharsets.UTF_8), avatarUrl != null ? avatarUrl.getBytes(StandardCharsets.UTF_8) : null, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    CachedMessage(long authorId, long channelId, boolean bot, byte[] authorTag, byte[] avatarUrl, byte[] content) {
+        this.authorId = authorId;
+        this.channelId = channelId;
+        this.bot = bot;
+        this.authorTag = authorTag;
+        this.avatarUrl = avatarUrl;
+        this.content = content;
+    }
+
+    /**
+     * Copy the fields we need out of a JDA message
+     *
+     * @param message The message to copy
+     * @return The cached copy
+     */
+    public static CachedMessage of(Message message) {
+        User author = message.getAuthor();
+        return new CachedMessage(author.getIdLong(), message.getChannel().getIdLong(), author.isBot(), author.getAsTag(), author.getAvatarUrl(), message.getContentRaw());
+    }
+
+    public long getAuthorId() {
+        return authorId;
+    }
+
+    public String getAuthorMention() {
+        return "<@" + authorId + ">";
+    }
+
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public boolean isBot() {
+        return bot;
+    }
+
+    public String getAuthorTag() {
+        return new String(authorTag, StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    public String getAvatarUrl() {
+        return avatarUrl != null ? new String(avatarUrl, StandardCharsets.UTF_8) : null;
+    }
+
+    public String getContent() {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    byte[] getAuthorTagBytes() {
+        return authorTag;
+    }
+
+    byte[] getAvatarUrlBytes() {
+        return avatarUrl;
+    }
+
+    byte[] getContentBytes() {
+        return content;
+    }
+
+    /**
+     * @return Approximate number of bytes this takes up on the heap
+     */
+    public int getWeight() {
+        return OVERHEAD + authorTag.length + (avatarUrl != null ? avatarUrl.length : 0) + content.length;
+    }
+}
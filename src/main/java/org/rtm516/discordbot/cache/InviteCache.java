@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Invite;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves invite codes without blocking, keeping the results for a while so the same invite
+ * being posted repeatedly doesn't need any more requests to Discord.
+ * Codes Discord refuses to resolve are remembered for a shorter time so a dead invite being spammed
+ * doesn't make a request for every message. Lookups for a code that is already being resolved share the same request.
+ */
+public class InviteCache {
+
+    private final Cache<String, Invite> invites = CacheBuilder.newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    private final Cache<String, Throwable> failures = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    private final Map<String, CompletableFuture<Invite>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * Get the invite for a code, from the cache if possible
+     *
+     * @param jda The JDA instance to make the request with
+     * @param code The invite code
+     * @return A future that completes with the invite, or exceptionally if it couldn't be resolved
+     */
+    public CompletableFuture<Invite> resolve(JDA jda, String code) {
+        Invite cached = invites.getIfPresent(code);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        Throwable failure = failures.getIfPresent(code);
+        if (failure != null) {
+            return CompletableFuture.failedFuture(failure);
+        }
+
+        CompletableFuture<Invite> future = new CompletableFuture<>();
+        CompletableFuture<Invite> existing = inflight.putIfAbsent(code, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        Invite.resolve(jda, code, true).queue(invite -> {
+            invites.put(code, invite);
+            inflight.remove(code);
+            future.complete(invite);
+        }, throwable -> {
+            // Only remember answers from Discord, not connection problems
+            if (throwable instanceof ErrorResponseException) {
+                failures.put(code, throwable);
+            }
+            inflight.remove(code);
+            future.completeExceptionally(throwable);
+        });
+
+        return future;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import net.dv8tion.jda.api.entities.Message;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global cache of recent messages across all guilds, used to show the old content in edit and delete logs.
+ * It is limited by the approximate number of bytes the messages take up rather than a message count,
+ * so a few busy guilds can't push the heap usage up.
+ */
+public class MessageCache {
+
+    private final Cache<Long, CachedMessage> cache;
+
+    /**
+     * @param maxBytes Approximate number of bytes the cached messages can take up
+     */
+    public MessageCache(long maxBytes) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, CachedMessage message) -> message.getWeight())
+                .expireAfterWrite(24, TimeUnit.HOURS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Add or replace a message in the cache
+     *
+     * @param message The message to cache
+     */
+    public void put(Message message) {
+        put(message.getIdLong(), CachedMessage.of(message));
+    }
+
+    /**
+     * Add or replace a message in the cache
+     *
+     * @param messageId ID of the message
+     * @param message The message to cache
+     */
+    public void put(long messageId, CachedMessage message) {
+        cache.put(messageId, message);
+    }
+
+    /**
+     * Get a message from the cache
+     *
+     * @param messageId ID of the message
+     * @return The cached message or null if it isn't cached
+     */
+    @Nullable
+    public CachedMessage get(long messageId) {
+        return cache.getIfPresent(messageId);
+    }
+
+    /**
+     * Remove a message from the cache
+     *
+     * @param messageId ID of the message
+     */
+    public void remove(long messageId) {
+        cache.invalidate(messageId);
+    }
+
+    /**
+     * @return The number of cached messages
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return Hit and eviction statistics for the cache
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+}
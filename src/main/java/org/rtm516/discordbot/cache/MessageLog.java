@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.cache;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.hash.TLongLongHashMap;
+import org.jetbrains.annotations.Nullable;
+import org.rtm516.discordbot.DiscordBot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of message snapshots in memory-mapped segment files, so cached messages survive a restart
+ * without taking up heap. Each segment covers up to an hour of messages and is deleted once everything in it
+ * is older than the retention time. Only the message ID to location index is kept on the heap, it is rebuilt
+ * by scanning the segments on startup.
+ *
+ * <p>Record layout: {@code [int length][long messageId][byte flags]} followed by, unless it is a tombstone,
+ * {@code [long authorId][long channelId][short tagLength][tag][short avatarLength or -1][avatar][int contentLength][content]}.
+ * The length is written last so a record that was cut off by a crash reads as the end of the segment.
+ */
+public class MessageLog {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final long ROLL_INTERVAL = TimeUnit.HOURS.toMillis(1);
+    private static final String EXTENSION = ".seg";
+
+    private static final byte FLAG_BOT = 1;
+    private static final byte FLAG_TOMBSTONE = 2;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Byte.BYTES;
+
+    /**
+     * Unsafe and its invokeCleaner method, used to unmap segments before they are deleted
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            DiscordBot.LOGGER.warn("Unable to unmap message log segments, expired segments will stay mapped until they are garbage collected");
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Path directory;
+    private final long retention;
+    private final LongSupplier clock;
+
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    /**
+     * Message ID -> segment ID in the high 32 bits and offset in the low 32 bits
+     */
+    private final TLongLongHashMap index = new TLongLongHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, 0, -1);
+
+    private Segment current;
+    private int nextSegmentId;
+    private boolean closed;
+
+    /**
+     * Open the log in the given directory, reading any existing segments back into the index
+     *
+     * @param directory Directory to keep the segment files in
+     * @param retention How long to keep messages for
+     * @param unit The unit of the retention
+     * @throws IOException If the directory or segments couldn't be read
+     */
+    public MessageLog(Path directory, long retention, TimeUnit unit) throws IOException {
+        this(directory, retention, unit, System::currentTimeMillis);
+    }
+
+    MessageLog(Path directory, long retention, TimeUnit unit, LongSupplier clock) throws IOException {
+        this.directory = directory;
+        this.retention = unit.toMillis(retention);
+        this.clock = clock;
+
+        Files.createDirectories(directory);
+        load();
+        expire();
+    }
+
+    private record Segment(int id, long created, Path path, MappedByteBuffer buffer) {
+    }
+
+    private void load() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).toList();
+        }
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String[] parts = name.substring(0, name.length() - EXTENSION.length()).split("-");
+
+            try {
+                Segment segment = new Segment(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), file, map(file));
+                segments.put(segment.id(), segment);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                DiscordBot.LOGGER.warn("Ignoring unknown file in message log: " + file);
+            }
+        }
+
+        // Replay in order so later records replace earlier ones
+        for (Segment segment : segments.values()) {
+            int end = scan(segment);
+            segment.buffer().position(end);
+            current = segment;
+            nextSegmentId = segment.id() + 1;
+        }
+
+        DiscordBot.LOGGER.info("Loaded " + index.size() + " messages from " + segments.size() + " message log segments");
+    }
+
+    private int scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer();
+        int offset = 0;
+
+        while (offset + HEADER_SIZE <= SEGMENT_SIZE) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + Integer.BYTES + length > SEGMENT_SIZE) {
+                break;
+            }
+
+            long messageId = buffer.getLong(offset + Integer.BYTES);
+            byte flags = buffer.get(offset + Integer.BYTES + Long.BYTES);
+            if ((flags & FLAG_TOMBSTONE) != 0) {
+                index.remove(messageId);
+            } else {
+                index.put(messageId, location(segment.id(), offset));
+            }
+
+            offset += Integer.BYTES + length;
+        }
+
+        return offset;
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /**
+     * Release the mapping of a segment straight away instead of waiting for the buffer to be garbage collected,
+     * the buffer must not be touched again after this
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            DiscordBot.LOGGER.warn("Failed to unmap message log segment", e);
+        }
+    }
+
+    private static long location(int segmentId, int offset) {
+        return ((long) segmentId << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get a segment with enough space for a record, starting a new one if needed
+     */
+    private Segment writableSegment(int recordSize) throws IOException {
+        long now = clock.getAsLong();
+        if (current == null || current.buffer().remaining() < recordSize || now - current.created() >= ROLL_INTERVAL) {
+            int id = nextSegmentId++;
+            Path path = directory.resolve(id + "-" + now + EXTENSION);
+            current = new Segment(id, now, path, map(path));
+            segments.put(id, current);
+        }
+        return current;
+    }
+
+    /**
+     * Append a snapshot of a message, replacing any earlier one
+     *
+     * @param messageId ID of the message
+     * @param message The message to store
+     */
+    public synchronized void append(long messageId, CachedMessage message) {
+        byte[] tag = message.getAuthorTagBytes();
+        byte[] avatar = message.getAvatarUrlBytes();
+        byte[] content = message.getContentBytes();
+
+        int recordSize = HEADER_SIZE + Long.BYTES * 2
+                + Short.BYTES + tag.length
+                + Short.BYTES + (avatar != null ? avatar.length : 0)
+                + Integer.BYTES + content.length;
+
+        if (recordSize > SEGMENT_SIZE || closed) {
+            return;
+        }
+
+        try {
+            Segment segment = writableSegment(recordSize);
+            MappedByteBuffer buffer = segment.buffer();
+            int offset = buffer.position();
+
+            buffer.position(offset + Integer.BYTES);
+            buffer.putLong(messageId);
+            buffer.put(message.isBot() ? FLAG_BOT : 0);
+            buffer.putLong(message.getAuthorId());
+            buffer.putLong(message.getChannelId());
+            buffer.putShort((short) tag.length);
+            buffer.put(tag);
+            if (avatar != null) {
+                buffer.putShort((short) avatar.length);
+                buffer.put(avatar);
+            } else {
+                buffer.putShort((short) -1);
+            }
+            buffer.putInt(content.length);
+            buffer.put(content);
+
+            buffer.putInt(offset, recordSize - Integer.BYTES);
+
+            index.put(messageId, location(segment.id(), offset));
+        } catch (IOException e) {
+            DiscordBot.LOGGER.error("Failed to write to the message log", e);
+        }
+    }
+
+    /**
+     * Read the latest snapshot of a message
+     *
+     * @param messageId ID of the message
+     * @return The stored message or null if there isn't one
+     */
+    @Nullable
+    public synchronized CachedMessage get(long messageId) {
+        long location = index.get(messageId);
+        if (location == -1) {
+            return null;
+        }
+
+        Segment segment = segments.get((int) (location >>> 32));
+        if (segment == null) {
+            return null;
+        }
+
+        MappedByteBuffer buffer = segment.buffer();
+        int offset = (int) location + HEADER_SIZE;
+        boolean bot = (buffer.get(offset - Byte.BYTES) & FLAG_BOT) != 0;
+
+        long authorId = buffer.getLong(offset);
+        offset += Long.BYTES;
+        long channelId = buffer.getLong(offset);
+        offset += Long.BYTES;
+
+        byte[] tag = new byte[buffer.getShort(offset)];
+        offset += Short.BYTES;
+        buffer.get(offset, tag);
+        offset += tag.length;
+
+        byte[] avatar = null;
+        short avatarLength = buffer.getShort(offset);
+        offset += Short.BYTES;
+        if (avatarLength >= 0) {
+            avatar = new byte[avatarLength];
+            buffer.get(offset, avatar);
+            offset += avatarLength;
+        }
+
+        byte[] content = new byte[buffer.getInt(offset)];
+        offset += Integer.BYTES;
+        buffer.get(offset, content);
+
+        return new CachedMessage(authorId, channelId, bot, tag, avatar, content);
+    }
+
+    /**
+     * Forget a message, a tombstone is written so it stays forgotten after a restart
+     *
+     * @param messageId ID of the message
+     */
+    public synchronized void remove(long messageId) {
+        if (closed || index.remove(messageId) == -1) {
+            return;
+        }
+
+        try {
+            MappedByteBuffer buffer = writableSegment(HEADER_SIZE).buffer();
+            int offset = buffer.position();
+
+            buffer.position(offset + Integer.BYTES);
+            buffer.putLong(messageId);
+            buffer.put(FLAG_TOMBSTONE);
+
+            buffer.putInt(offset, HEADER_SIZE - Integer.BYTES);
+        } catch (IOException e) {
+            DiscordBot.LOGGER.error("Failed to write to the message log", e);
+        }
+    }
+
+    /**
+     * Delete segments where every message is older than the retention time
+     */
+    public synchronized void expire() {
+        long cutoff = clock.getAsLong() - retention - ROLL_INTERVAL;
+
+        List<Integer> expired = new ArrayList<>();
+        Iterator<Map.Entry<Integer, Segment>> iterator = segments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Segment segment = iterator.next().getValue();
+            if (segment.created() >= cutoff) {
+                // Segments are in creation order so the rest are newer
+                break;
+            }
+
+            iterator.remove();
+            expired.add(segment.id());
+            if (segment == current) {
+                current = null;
+            }
+
+            // Nothing can reach the segment any more so it is safe to unmap, some platforms can't delete mapped files
+            unmap(segment.buffer());
+
+            try {
+                Files.deleteIfExists(segment.path());
+            } catch (IOException e) {
+                DiscordBot.LOGGER.warn("Failed to delete message log segment " + segment.path(), e);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            index.retainEntries((messageId, location) -> !expired.contains((int) (location >>> 32)));
+        }
+    }
+
+    /**
+     * Write everything out to disk and unmap the segments, the log does nothing once closed
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (Segment segment : segments.values()) {
+            try {
+                segment.buffer().force();
+            } catch (UncheckedIOException e) {
+                DiscordBot.LOGGER.warn("Failed to write out message log segment " + segment.path(), e);
+            }
+            unmap(segment.buffer());
+        }
+
+        segments.clear();
+        index.clear();
+        current = null;
+    }
+
+    /**
+     * @return The number of messages in the log
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+}
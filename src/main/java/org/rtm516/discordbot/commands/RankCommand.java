@@ -44,7 +44,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 public class RankCommand extends SlashCommand {
 
@@ -80,36 +79,34 @@ public class RankCommand extends SlashCommand {
     }
 
     protected MessageEmbed handle(Guild guild, Member member, String wantedRole) {
-        Map<String, String> roles = ServerSettings.getMap(guild.getIdLong(), "roles");
-        for (Map.Entry<String, String> roleData : roles.entrySet()) {
-            if (wantedRole.equalsIgnoreCase(roleData.getKey())) {
-                Role role = guild.getRoleById(roleData.getValue());
-                if (role == null) {
-                    return new EmbedBuilder()
-                            .setTitle("Invalid role")
-                            .setDescription("Invalid role specified in configuration")
-                            .setTimestamp(Instant.now())
-                            .setColor(BotColors.FAILURE.getColor())
-                            .build();
-                }
+        long roleId = ServerSettings.getSettings(guild).getRole(wantedRole);
+        if (roleId != 0) {
+            Role role = guild.getRoleById(roleId);
+            if (role == null) {
+                return new EmbedBuilder()
+                        .setTitle("Invalid role")
+                        .setDescription("Invalid role specified in configuration")
+                        .setTimestamp(Instant.now())
+                        .setColor(BotColors.FAILURE.getColor())
+                        .build();
+            }
 
-                if (member.getRoles().contains(role)) {
-                    guild.removeRoleFromMember(member, role).queue();
-                    return new EmbedBuilder()
-                            .setTitle("Removed role")
-                            .setDescription("Removed " + role.getAsMention() + " from " + member.getAsMention())
-                            .setTimestamp(Instant.now())
-                            .setColor(BotColors.SUCCESS.getColor())
-                            .build();
-                } else {
-                    guild.addRoleToMember(member, role).queue();
-                    return new EmbedBuilder()
-                            .setTitle("Granted role")
-                            .setDescription("Given " + role.getAsMention() + " to " + member.getAsMention())
-                            .setTimestamp(Instant.now())
-                            .setColor(BotColors.SUCCESS.getColor())
-                            .build();
-                }
+            if (member.getRoles().contains(role)) {
+                guild.removeRoleFromMember(member, role).queue();
+                return new EmbedBuilder()
+                        .setTitle("Removed role")
+                        .setDescription("Removed " + role.getAsMention() + " from " + member.getAsMention())
+                        .setTimestamp(Instant.now())
+                        .setColor(BotColors.SUCCESS.getColor())
+                        .build();
+            } else {
+                guild.addRoleToMember(member, role).queue();
+                return new EmbedBuilder()
+                        .setTitle("Granted role")
+                        .setDescription("Given " + role.getAsMention() + " to " + member.getAsMention())
+                        .setTimestamp(Instant.now())
+                        .setColor(BotColors.SUCCESS.getColor())
+                        .build();
             }
         }
 
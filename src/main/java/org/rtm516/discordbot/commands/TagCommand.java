@@ -34,8 +34,8 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.rtm516.discordbot.tags.SlashTag;
 import org.rtm516.discordbot.tags.TagsManager;
+import org.rtm516.discordbot.util.BigramProfile;
 import org.rtm516.discordbot.util.BotColors;
-import org.rtm516.discordbot.util.DicesCoefficient;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -106,16 +106,18 @@ public class TagCommand extends SlashCommand {
     List<String> potentialTags(String query) {
         List<String> potential = new ArrayList<>();
 
+        String lowerQuery = query.toLowerCase();
+        BigramProfile profile = BigramProfile.ofIgnoreCase(lowerQuery);
+
         for (SlashTag slashTag : TagsManager.getEmbedTags()) {
             // Check if the name starts with the query
-            if (slashTag.getName().toLowerCase().startsWith(query.toLowerCase())) {
+            if (slashTag.getName().toLowerCase().startsWith(lowerQuery)) {
                 potential.add(slashTag.getName());
                 continue;
             }
 
             // Check if the name is similar
-            double similar = DicesCoefficient.diceCoefficientOptimized(query.toLowerCase(), slashTag.getName().toLowerCase());
-            if (similar > 0.2d) {
+            if (profile.isAbove(slashTag.getName(), 0.2d)) {
                 potential.add(slashTag.getName());
                 continue;
             }
@@ -124,14 +126,13 @@ public class TagCommand extends SlashCommand {
             if (slashTag.getAliases() != null && !slashTag.getAliases().isEmpty()) {
                 for (String alias : slashTag.getAliases().split(",")) {
                     // Check if the alias starts with the query
-                    if (alias.toLowerCase().startsWith(query.toLowerCase())) {
+                    if (alias.toLowerCase().startsWith(lowerQuery)) {
                         potential.add(alias);
                         break;
                     }
 
                     // Check if the alias is similar
-                    double aliasSimilar = DicesCoefficient.diceCoefficientOptimized(query.toLowerCase(), alias.toLowerCase());
-                    if (aliasSimilar > 0.2d) {
+                    if (profile.isAbove(alias, 0.2d)) {
                         potential.add(alias);
                         break;
                     }
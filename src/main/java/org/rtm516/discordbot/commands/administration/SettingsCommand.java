@@ -42,6 +42,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class SettingsCommand extends SlashCommand {
 
@@ -66,12 +67,15 @@ public class SettingsCommand extends SlashCommand {
                         .addChoice("Convert Extensions", "convert-extensions")
                         .addChoice("Don't level", "dont-level")
                         .addChoice("Don't log","dont-log")
+                        .addChoice("Filter words", "filter-words")
                         .addChoice("Forum Channel", "forum-channel")
                         .addChoice("Health Checks", "health-checks")
                         .addChoice("Log channel", "log-channel")
                         .addChoice("Preview Channel", "preview-channel")
                         .addChoice("Preview Feeds Channel", "preview-feeds-channel")
                         .addChoice("Punishment Message", "punishment-message")
+                        .addChoice("Raid action", "raid-action")
+                        .addChoice("Raid thresholds", "raid-thresholds")
                         .addChoice("Roles", "roles")
                         .addChoice("RSS Feeds", "rss-feeds")
                         .addChoice("Update channel", "update-channel")
@@ -87,7 +91,9 @@ public class SettingsCommand extends SlashCommand {
         String key = event.getOption("key").getAsString();
         String value = event.optString("value", null);
 
-        event.replyEmbeds(handle(event.getGuild(), action, key, value)).queue();
+        // Run the storage calls off the event thread and edit the reply once they're done
+        event.deferReply().queue();
+        handleAsync(event.getGuild(), action, key, value).thenAccept(embed -> event.getHook().editOriginalEmbeds(embed).queue());
     }
 
     @Override
@@ -108,7 +114,7 @@ public class SettingsCommand extends SlashCommand {
         String key = args.get(1);
         String value;
 
-        if (args.size() >= 3 && (args.get(0).equals("set") || args.get(0).equals("add"))) {
+        if (args.size() >= 3 && (args.get(0).equals("set") || args.get(0).equals("add") || args.get(0).equals("remove"))) {
             args.remove(1);
             args.remove(0);
             value = String.join(" ", args);
@@ -116,7 +122,31 @@ public class SettingsCommand extends SlashCommand {
             value = null;
         }
 
-        event.getMessage().replyEmbeds(handle(event.getGuild(), action, key, value)).queue();
+        handleAsync(event.getGuild(), action, key, value).thenAccept(embed -> event.getMessage().replyEmbeds(embed).queue());
+    }
+
+    private CompletableFuture<MessageEmbed> handleAsync(Guild guild, String action, String key, String updatedValue) {
+        // Catch a missing value here so it isn't reported as a database error
+        boolean needsValue = action.equals("set") || action.equals("add") || action.equals("remove");
+        if (needsValue && (updatedValue == null || updatedValue.isBlank())) {
+            return CompletableFuture.completedFuture(new EmbedBuilder()
+                    .setTitle("Invalid usage")
+                    .setDescription("Please specify a value to " + action + "!")
+                    .setTimestamp(Instant.now())
+                    .setColor(BotColors.FAILURE.getColor())
+                    .build());
+        }
+
+        return DiscordBot.asyncStorageManager.supply(() -> handle(guild, action, key, updatedValue))
+                .exceptionally(throwable -> {
+                    DiscordBot.LOGGER.error("Failed to update setting", throwable);
+                    return new EmbedBuilder()
+                            .setTitle("Failed to update setting")
+                            .setDescription("An error occurred while accessing the database")
+                            .setTimestamp(Instant.now())
+                            .setColor(BotColors.FAILURE.getColor())
+                            .build();
+                });
     }
 
     private MessageEmbed handle(Guild guild, String action, String key, String updatedValue) {
@@ -126,32 +156,33 @@ public class SettingsCommand extends SlashCommand {
         switch (action) {
             case "get" -> {
                 title = "Setting value";
-                value = DiscordBot.storageManager.getServerPreference(guild.getIdLong(), key);
+                value = getValue(guild, key);
             }
             case "set" -> {
                 title = "Updated setting";
-                value = String.join(" ", updatedValue);
-                DiscordBot.storageManager.setServerPreference(guild.getIdLong(), key, value);
+                if (ServerSettings.isListKey(key)) {
+                    List<String> items = new ArrayList<>();
+                    for (String item : updatedValue.split(",")) {
+                        item = item.trim();
+                        if (!item.isEmpty()) {
+                            items.add(item);
+                        }
+                    }
+                    ServerSettings.setList(guild.getIdLong(), key, items);
+                } else {
+                    DiscordBot.storageManager.setServerPreference(guild.getIdLong(), key, updatedValue);
+                }
+                value = getValue(guild, key);
             }
             case "add" -> {
                 title = "Updated setting";
-
-                List<String> list = ServerSettings.getList(guild.getIdLong(), key);
-                list.add(String.join(" ", updatedValue));
-
-                ServerSettings.setList(guild.getIdLong(), key, list);
-
-                value = DiscordBot.storageManager.getServerPreference(guild.getIdLong(), key);
+                ServerSettings.addListItem(guild.getIdLong(), key, updatedValue.trim());
+                value = getValue(guild, key);
             }
             case "remove" -> {
                 title = "Updated setting";
-
-                List<String> list = ServerSettings.getList(guild.getIdLong(), key);
-                list.remove(String.join(" ", updatedValue));
-
-                ServerSettings.setList(guild.getIdLong(), key, list);
-
-                value = DiscordBot.storageManager.getServerPreference(guild.getIdLong(), key);
+                ServerSettings.removeListItem(guild.getIdLong(), key, updatedValue.trim());
+                value = getValue(guild, key);
             }
             default -> {
                 return new EmbedBuilder()
@@ -171,4 +202,12 @@ public class SettingsCommand extends SlashCommand {
                 .setColor(BotColors.SUCCESS.getColor())
                 .build();
     }
+
+    private String getValue(Guild guild, String key) {
+        if (ServerSettings.isListKey(key)) {
+            return String.join(",", ServerSettings.getList(guild.getIdLong(), key));
+        }
+
+        return DiscordBot.storageManager.getServerPreference(guild.getIdLong(), key);
+    }
 }
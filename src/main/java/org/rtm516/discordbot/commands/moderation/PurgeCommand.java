@@ -34,9 +34,9 @@ import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.rtm516.discordbot.listeners.LogHandler;
-import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
 import org.rtm516.discordbot.util.BotHelpers;
+import org.rtm516.discordbot.util.LogDispatcher;
 import org.rtm516.discordbot.util.MessageHelper;
 
 import java.time.Instant;
@@ -125,7 +125,7 @@ public class PurgeCommand extends SlashCommand {
             }
         }
 
-        LogHandler.PURGED_MESSAGES.add(event.getMessage().getId());
+        LogHandler.PURGED_MESSAGES.add(event.getMessage().getIdLong());
         event.getMessage().delete().queue();
 
         MessageHistory history = event.getChannel().getHistory();
@@ -173,7 +173,9 @@ public class PurgeCommand extends SlashCommand {
 
         if (!messagesToDeleteIds.isEmpty()) {
             // Tell the log handler to ignore the messages
-            LogHandler.PURGED_MESSAGES.addAll(messagesToDeleteIds);
+            for (String id : messagesToDeleteIds) {
+                LogHandler.PURGED_MESSAGES.add(Long.parseLong(id));
+            }
 
             // TODO: Store the contents of removed messages and upload along side the log
             // Log the change
@@ -188,7 +190,7 @@ public class PurgeCommand extends SlashCommand {
                     .build();
 
             // Send the embed as a reply and to the log
-            ServerSettings.getLogChannel(guild).sendMessageEmbeds(purgedEmbed).queue();
+            LogDispatcher.send(guild, purgedEmbed);
         }
 
         return messagesToDeleteIds;
@@ -37,9 +37,9 @@ import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import org.rtm516.discordbot.DiscordBot;
 import org.rtm516.discordbot.listeners.SwearHandler;
-import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
 import org.rtm516.discordbot.util.BotHelpers;
+import org.rtm516.discordbot.util.LogDispatcher;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -117,7 +117,7 @@ public class RenameCommand extends SlashCommand {
                 .build();
 
         // Send the embed as a reply and to the log
-        ServerSettings.getLogChannel(guild).sendMessageEmbeds(renameEmbed).queue();
+        LogDispatcher.send(guild, renameEmbed);
         return renameEmbed;
     }
 
@@ -34,9 +34,9 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.entities.User;
 import org.rtm516.discordbot.DiscordBot;
-import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
 import org.rtm516.discordbot.util.BotHelpers;
+import org.rtm516.discordbot.util.LogDispatcher;
 
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
@@ -116,7 +116,7 @@ public class QuickBanUserMenu extends UserContextMenu {
                 .build();
 
         // Send the embed as a reply and to the log
-        ServerSettings.getLogChannel(guild).sendMessageEmbeds(bannedEmbed).queue();
+        LogDispatcher.send(guild, bannedEmbed);
         return bannedEmbed;
     }
 }
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Immutable Aho-Corasick automaton that finds any of a set of words in a single pass over the text.
+ * Only whole words count as a match, so the word has to start at the beginning of the text or after
+ * a space and end at the end of the text or before a space.
+ */
+public final class AhoCorasickMatcher {
+
+    private final String[] words;
+
+    /**
+     * Sorted transition chars and target states for each state
+     */
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+
+    /**
+     * State to fall back to when there is no transition for the next char
+     */
+    private final int[] fail;
+
+    /**
+     * Index of the word that ends at each state, or -1
+     */
+    private final int[] output;
+
+    /**
+     * Next state in the fail chain that ends a word, or -1
+     */
+    private final int[] dictionaryLink;
+
+    public AhoCorasickMatcher(Collection<String> words) {
+        this.words = new LinkedHashSet<>(words).stream()
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+
+        // Build the trie
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(-1);
+
+        for (int i = 0; i < this.words.length; i++) {
+            int state = 0;
+            for (char c : this.words[i].toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<>());
+                    outputs.add(-1);
+                }
+                state = next;
+            }
+            outputs.set(state, i);
+        }
+
+        int states = trie.size();
+        edgeChars = new char[states][];
+        edgeTargets = new int[states][];
+        fail = new int[states];
+        output = new int[states];
+        dictionaryLink = new int[states];
+
+        for (int state = 0; state < states; state++) {
+            Map<Character, Integer> edges = trie.get(state);
+            edgeChars[state] = new char[edges.size()];
+            edgeTargets[state] = new int[edges.size()];
+
+            // TreeMap iterates in char order so the edges can be binary searched
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[state][i] = edge.getKey();
+                edgeTargets[state][i] = edge.getValue();
+                i++;
+            }
+            output[state] = outputs.get(state);
+        }
+
+        // Breadth first so the fail state is always finished before its children
+        dictionaryLink[0] = -1;
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : edgeTargets[0]) {
+            fail[child] = 0;
+            dictionaryLink[child] = -1;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < edgeChars[state].length; i++) {
+                char c = edgeChars[state][i];
+                int child = edgeTargets[state][i];
+
+                int fallback = fail[state];
+                int next;
+                while ((next = transition(fallback, c)) == -1 && fallback != 0) {
+                    fallback = fail[fallback];
+                }
+                fail[child] = next == -1 ? 0 : next;
+                dictionaryLink[child] = output[fail[child]] != -1 ? fail[child] : dictionaryLink[fail[child]];
+
+                queue.add(child);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        char[] chars = edgeChars[state];
+        int low = 0;
+        int high = chars.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = chars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the first whole word from the set in the text
+     *
+     * @param text The text to search
+     * @return The word that was found or null if there was none
+     */
+    public String find(CharSequence text) {
+        int length = text.length();
+        int state = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+
+            int next;
+            while ((next = transition(state, c)) == -1 && state != 0) {
+                state = fail[state];
+            }
+            state = next == -1 ? 0 : next;
+
+            // Nothing can end here unless the next char is a boundary
+            if (i + 1 < length && text.charAt(i + 1) != ' ') {
+                continue;
+            }
+
+            for (int match = output[state] != -1 ? state : dictionaryLink[state]; match != -1; match = dictionaryLink[match]) {
+                String word = words[output[match]];
+                int start = i - word.length() + 1;
+                if (start == 0 || text.charAt(start - 1) == ' ') {
+                    return word;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of words in the automaton
+     */
+    public int size() {
+        return words.length;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.storage.ServerSettings;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the custom word filter for each guild, these are checked on top of the global word lists.
+ * Filters are compiled on a background thread and swapped in once they are ready,
+ * so checking a message never has to compile anything or wait on the database.
+ */
+public class GuildFilters {
+
+    public static final String FILTER_WORDS_KEY = "filter-words";
+
+    private static final Map<Long, WordFilter> FILTERS = new ConcurrentHashMap<>();
+
+    private static final ExecutorService COMPILER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Filter compiler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Get the custom filter for a guild, this is empty until the guild's list has been compiled
+     *
+     * @param serverID ID of the guild to get the filter for
+     * @return The current {@link WordFilter} for the guild
+     */
+    public static WordFilter getFilter(long serverID) {
+        WordFilter filter = FILTERS.get(serverID);
+        if (filter != null) {
+            return filter;
+        }
+
+        // First time we've seen this guild, use an empty filter until the real one is compiled
+        if (FILTERS.putIfAbsent(serverID, WordFilter.EMPTY) == null) {
+            compile(serverID);
+        }
+        return WordFilter.EMPTY;
+    }
+
+    /**
+     * Recompile the filter for a guild after its list changed
+     *
+     * @param serverID ID of the guild to reload
+     */
+    public static void reload(long serverID) {
+        // Guilds that haven't been loaded yet will pick up the change when they are
+        if (FILTERS.containsKey(serverID)) {
+            compile(serverID);
+        }
+    }
+
+    private static void compile(long serverID) {
+        COMPILER.execute(() -> {
+            try {
+                FILTERS.put(serverID, WordFilter.compile(ServerSettings.getList(serverID, FILTER_WORDS_KEY)));
+            } catch (Exception e) {
+                DiscordBot.LOGGER.error("Failed to compile the word filter for " + serverID, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import java.text.Normalizer;
+
+/**
+ * Normalises text for the word filter in a single pass over the chars.
+ * Every char is lower cased, has its diacritics stripped and is folded to a
+ * latin lookalike using a table that is built once when the class loads.
+ */
+public final class TextNormaliser {
+
+    /**
+     * Marks chars that should be dropped completely, such as combining diacritical marks
+     */
+    private static final char DROP = '\uffff';
+
+    /**
+     * Chars that look like latin letters, folded after the diacritics are stripped
+     */
+    private static final char[][] CONFUSABLES = {
+            { '\u0430', 'a' },
+            { '\u043a', 'k' },
+            { '\u0441', 'c' },
+            { '\u0443', 'y' },
+            { '\u0435', 'e' },
+            { '\u0445', 'x' },
+            { '\u0440', 'p' },
+            { '\u043e', 'o' }
+    };
+
+    private static final char[] FOLD = new char[Character.MAX_VALUE + 1];
+    private static final boolean[] WORD_CHAR = new boolean[Character.MAX_VALUE + 1];
+
+    private static final ThreadLocal<Normalised> BUFFERS = ThreadLocal.withInitial(Normalised::new);
+
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            FOLD[c] = computeFold((char) c);
+            WORD_CHAR[c] = isWordChar((char) c);
+        }
+        FOLD[DROP] = DROP;
+    }
+
+    private TextNormaliser() {
+    }
+
+    private static char computeFold(char c) {
+        if (Character.isSurrogate(c)) {
+            return c;
+        }
+
+        char lower = Character.toLowerCase(c);
+        if (lower < 0x80) {
+            return lower;
+        }
+
+        // Strip any diacritics, Normalizer is fine here as it only runs when building the table
+        String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char part = decomposed.charAt(i);
+            if (Character.UnicodeBlock.of(part) != Character.UnicodeBlock.COMBINING_DIACRITICAL_MARKS) {
+                stripped.append(part);
+            }
+        }
+
+        if (stripped.isEmpty()) {
+            return DROP;
+        }
+
+        // Things like hangul decompose to more than one char, leave those alone
+        char base = stripped.length() == 1 ? stripped.charAt(0) : lower;
+        for (char[] confusable : CONFUSABLES) {
+            if (base == confusable[0]) {
+                return confusable[1];
+            }
+        }
+        return base;
+    }
+
+    private static boolean isWordChar(char c) {
+        if (c == ' ' || Character.isLetter(c)) {
+            return true;
+        }
+
+        int type = Character.getType(c);
+        return type == Character.DECIMAL_DIGIT_NUMBER || type == Character.LETTER_NUMBER || type == Character.OTHER_NUMBER;
+    }
+
+    /**
+     * Fold a string using the same table as {@link #normalise(CharSequence)}, but keep everything else as is.
+     * This is used to bring the filter entries into the same form as the text they are checked against.
+     *
+     * @param input The string to fold
+     * @return The folded string
+     */
+    public static String fold(String input) {
+        StringBuilder folded = new StringBuilder(input.length());
+        for (int i = 0; i < input.length(); i++) {
+            char c = FOLD[input.charAt(i)];
+            if (c != DROP) {
+                folded.append(c);
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Normalise the input into the forms that are checked by the filter.
+     * The returned buffers belong to the calling thread and are overwritten by the next call,
+     * so they must not be kept or passed to other threads.
+     *
+     * @param input The text to normalise
+     * @return The normalised forms of the text
+     */
+    public static Normalised normalise(CharSequence input) {
+        Normalised normalised = BUFFERS.get();
+        StringBuilder folded = normalised.folded;
+        StringBuilder clean = normalised.clean;
+        StringBuilder spaced = normalised.spaced;
+
+        folded.setLength(0);
+        clean.setLength(0);
+        spaced.setLength(0);
+
+        int length = input.length();
+        for (int i = 0; i < length; i++) {
+            char original = input.charAt(i);
+            char c = FOLD[original];
+            if (c == DROP) {
+                continue;
+            }
+
+            folded.append(c);
+            if (WORD_CHAR[original]) {
+                clean.append(c);
+                spaced.append(c);
+            } else {
+                spaced.append(' ');
+            }
+        }
+
+        return normalised;
+    }
+
+    /**
+     * The normalised forms of some text, all of them are lower cased, stripped of diacritics and folded
+     */
+    public static final class Normalised {
+        private final StringBuilder folded = new StringBuilder();
+        private final StringBuilder clean = new StringBuilder();
+        private final StringBuilder spaced = new StringBuilder();
+
+        private Normalised() {
+        }
+
+        /**
+         * @return The text with any punctuation left in place
+         */
+        public CharSequence folded() {
+            return folded;
+        }
+
+        /**
+         * @return The text with anything that isn't a letter, number or space removed
+         */
+        public CharSequence clean() {
+            return clean;
+        }
+
+        /**
+         * @return The text with anything that isn't a letter, number or space replaced by a space
+         */
+        public CharSequence spaced() {
+            return spaced;
+        }
+    }
+}
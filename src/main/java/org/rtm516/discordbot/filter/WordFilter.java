@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import org.rtm516.discordbot.DiscordBot;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compiled, immutable set of filter entries.
+ * Plain words go into a single {@link AhoCorasickMatcher} and only the entries
+ * that actually use regex syntax are checked with a combined fallback {@link Pattern}.
+ */
+public final class WordFilter {
+
+    public static final WordFilter EMPTY = compile(List.of());
+
+    private static final Pattern REGEX_CHARS = Pattern.compile("[\\[\\](){}?*+|.\\\\^$]");
+
+    private final AhoCorasickMatcher words;
+    private final Map<String, String> wordEntries;
+    private final List<String> expressions;
+    private final List<Pattern> patterns;
+    private final Pattern combinedPattern;
+
+    private WordFilter(AhoCorasickMatcher words, Map<String, String> wordEntries, List<String> expressions, List<Pattern> patterns, Pattern combinedPattern) {
+        this.words = words;
+        this.wordEntries = wordEntries;
+        this.expressions = expressions;
+        this.patterns = patterns;
+        this.combinedPattern = combinedPattern;
+    }
+
+    /**
+     * Compile a set of filter entries, these are folded with {@link TextNormaliser#fold(String)}
+     * and entries that are not valid regex are skipped
+     *
+     * @param entries The lines from the word lists
+     * @return The compiled filter
+     */
+    public static WordFilter compile(Collection<String> entries) {
+        Map<String, String> wordEntries = new HashMap<>();
+        List<String> expressions = new ArrayList<>();
+        List<String> foldedExpressions = new ArrayList<>();
+        List<Pattern> patterns = new ArrayList<>();
+
+        for (String entry : entries) {
+            entry = entry.trim();
+            String folded = TextNormaliser.fold(entry);
+            if (folded.isEmpty()) {
+                continue;
+            }
+
+            if (!REGEX_CHARS.matcher(folded).find()) {
+                wordEntries.putIfAbsent(folded, entry);
+                continue;
+            }
+
+            try {
+                patterns.add(Pattern.compile("(^| )" + folded + "( |$)"));
+                expressions.add(entry);
+                foldedExpressions.add(folded);
+            } catch (PatternSyntaxException e) {
+                DiscordBot.LOGGER.warn("Skipping invalid filter entry '" + entry + "'", e);
+            }
+        }
+
+        Pattern combinedPattern = null;
+        if (!foldedExpressions.isEmpty()) {
+            combinedPattern = Pattern.compile("(?:^| )(?:(?:" + String.join(")|(?:", foldedExpressions) + "))(?: |$)");
+        }
+
+        return new WordFilter(new AhoCorasickMatcher(wordEntries.keySet()), Map.copyOf(wordEntries), List.copyOf(expressions), List.copyOf(patterns), combinedPattern);
+    }
+
+    /**
+     * Find the first filter entry that matches the input
+     *
+     * @param input Text that has been through {@link TextNormaliser}
+     * @return The matching entry as it was written in the list or null if nothing matched
+     */
+    public String find(CharSequence input) {
+        String word = words.find(input);
+        if (word != null) {
+            return wordEntries.get(word);
+        }
+
+        if (combinedPattern != null && combinedPattern.matcher(input).find()) {
+            // Work out which entry it was, this only happens for messages that are getting removed
+            for (int i = 0; i < patterns.size(); i++) {
+                if (patterns.get(i).matcher(input).find()) {
+                    return expressions.get(i);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of entries in the filter
+     */
+    public int size() {
+        return words.size() + patterns.size();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.rtm516.discordbot.DiscordBot;
+import pw.chew.chewbotcca.util.RestClient;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asks <a href="https://anti-fish.bitflow.dev">anti-fish</a> about a domain in the background,
+ * as a second opinion for domains that aren't in the local {@link PhishingDomains} list.
+ * Answers are cached per domain, and checks for a domain already being looked up share the same request.
+ */
+public class AntiFishClient {
+    private static final String CHECK_URL = "https://anti-fish.bitflow.dev/check";
+    private static final float MIN_TRUST = 0.5f;
+
+    private final Cache<String, Optional<Match>> results = CacheBuilder.newBuilder()
+            .expireAfterWrite(30, TimeUnit.MINUTES)
+            .maximumSize(10000)
+            .build();
+
+    private final Map<String, CompletableFuture<Optional<Match>>> inflight = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor;
+
+    public AntiFishClient(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Anti-fish " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Check a domain, from the cache if possible
+     *
+     * @param domain The domain to check
+     * @return A future that completes with the match, or empty if the domain wasn't flagged, or exceptionally if the request failed
+     */
+    public CompletableFuture<Optional<Match>> check(String domain) {
+        String key = domain.toLowerCase(Locale.ROOT);
+
+        Optional<Match> cached = results.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Optional<Match>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Match>> existing = inflight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        executor.execute(() -> {
+            try {
+                Optional<Match> result = request(key);
+                results.put(key, result);
+                future.complete(result);
+            } catch (Exception e) {
+                // Don't cache failures so the next sighting tries again
+                DiscordBot.LOGGER.debug("Anti-fish check failed for " + key, e);
+                future.completeExceptionally(e);
+            } finally {
+                inflight.remove(key);
+            }
+        });
+
+        return future;
+    }
+
+    private Optional<Match> request(String domain) {
+        JSONObject body = new JSONObject().put("message", domain);
+        JSONObject response = RestClient.post(CHECK_URL, body).asJSONObject();
+        if (!response.optBoolean("match")) {
+            return Optional.empty();
+        }
+
+        JSONArray matches = response.getJSONArray("matches");
+        for (int i = 0; i < matches.length(); i++) {
+            JSONObject match = matches.getJSONObject(i);
+            if (match.getFloat("trust_rating") >= MIN_TRUST) {
+                return Optional.of(new Match(match.getString("domain"), "`anti-fish.bitflow.dev` flagged as `" + match.getString("type") + "` from `" + match.getString("source") + "` with a trust rating of " + match.getFloat("trust_rating")));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * A domain anti-fish flagged
+     *
+     * @param domain The domain that was flagged
+     * @param reason A description of why it was flagged
+     */
+    public record Match(String domain, String reason) {
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.rtm516.discordbot.DiscordBot;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves host names off the calling thread, so the event threads never wait on DNS.
+ * Results are cached, with hosts that don't exist kept for a shorter time than ones that do,
+ * and lookups for a host that is already being resolved share the same request.
+ */
+public class DnsResolver {
+    private static final InetAddress[] NO_ADDRESSES = new InetAddress[0];
+    private static final int MAX_ENTRIES = 10000;
+
+    private final HostResolver resolver;
+    private final Executor executor;
+
+    private final Cache<String, InetAddress[]> resolved;
+    private final Cache<String, Boolean> unresolved;
+
+    private final Map<String, CompletableFuture<InetAddress[]>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * Create a resolver using the system DNS with its own lookup threads
+     *
+     * @param threads The number of lookups that can run at once
+     */
+    public DnsResolver(int threads) {
+        this(HostResolver.SYSTEM, createExecutor(threads), 5, 1, TimeUnit.MINUTES, Ticker.systemTicker());
+    }
+
+    /**
+     * @param resolver The resolver to do the actual lookups with
+     * @param executor The executor to run the lookups on
+     * @param positiveTtl How long to keep the addresses for a host
+     * @param negativeTtl How long to remember that a host doesn't exist
+     * @param unit The unit for both TTLs
+     * @param ticker The time source for the caches
+     */
+    public DnsResolver(HostResolver resolver, Executor executor, long positiveTtl, long negativeTtl, TimeUnit unit, Ticker ticker) {
+        this.resolver = resolver;
+        this.executor = executor;
+
+        this.resolved = CacheBuilder.newBuilder()
+                .expireAfterWrite(positiveTtl, unit)
+                .maximumSize(MAX_ENTRIES)
+                .ticker(ticker)
+                .build();
+        this.unresolved = CacheBuilder.newBuilder()
+                .expireAfterWrite(negativeTtl, unit)
+                .maximumSize(MAX_ENTRIES)
+                .ticker(ticker)
+                .build();
+    }
+
+    private static Executor createExecutor(int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "DNS resolver " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the addresses for a host, from the cache if possible
+     *
+     * @param host The host name to look up
+     * @return A future that completes with the addresses, empty if the host couldn't be resolved
+     */
+    public CompletableFuture<InetAddress[]> resolve(String host) {
+        String key = host.toLowerCase(Locale.ROOT);
+
+        InetAddress[] cached = resolved.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        if (unresolved.getIfPresent(key) != null) {
+            return CompletableFuture.completedFuture(NO_ADDRESSES);
+        }
+
+        CompletableFuture<InetAddress[]> future = new CompletableFuture<>();
+        CompletableFuture<InetAddress[]> existing = inflight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            executor.execute(() -> lookup(key, future));
+        } catch (RuntimeException e) {
+            // The executor has been shut down, treat it as a failed lookup without caching it
+            inflight.remove(key);
+            future.complete(NO_ADDRESSES);
+        }
+
+        return future;
+    }
+
+    private void lookup(String key, CompletableFuture<InetAddress[]> future) {
+        InetAddress[] addresses;
+        try {
+            addresses = resolver.resolve(key);
+        } catch (UnknownHostException e) {
+            addresses = NO_ADDRESSES;
+        } catch (Exception e) {
+            DiscordBot.LOGGER.debug("Failed to resolve " + key, e);
+            addresses = NO_ADDRESSES;
+        }
+
+        if (addresses == null || addresses.length == 0) {
+            addresses = NO_ADDRESSES;
+            unresolved.put(key, Boolean.TRUE);
+        } else {
+            resolved.put(key, addresses);
+        }
+
+        inflight.remove(key);
+        future.complete(addresses);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Compact immutable set of domains, kept as a sorted array of 64-bit hashes rather than strings
+ * so even a list of hundreds of thousands of domains only costs 8 bytes per entry.
+ * Lookups hash the domain and each of its parent domains without allocating.
+ */
+public class DomainHashSet {
+    public static final DomainHashSet EMPTY = new DomainHashSet(new long[0]);
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long[] hashes;
+
+    private DomainHashSet(long[] hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * Build a set from a list of domains, these are matched case-insensitively
+     *
+     * @param domains The domains to add
+     * @return The compiled set
+     */
+    public static DomainHashSet of(Collection<String> domains) {
+        long[] hashes = new long[domains.size()];
+        int count = 0;
+        for (String domain : domains) {
+            String trimmed = domain.trim();
+            if (!trimmed.isEmpty()) {
+                hashes[count++] = hash(trimmed, 0, trimmed.length());
+            }
+        }
+
+        Arrays.sort(hashes, 0, count);
+
+        // Remove any duplicates
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || hashes[unique - 1] != hashes[i]) {
+                hashes[unique++] = hashes[i];
+            }
+        }
+
+        return new DomainHashSet(Arrays.copyOf(hashes, unique));
+    }
+
+    /**
+     * FNV-1a over the lower case form of part of a domain
+     */
+    private static long hash(CharSequence domain, int start, int end) {
+        long hash = FNV_OFFSET;
+        for (int i = start; i < end; i++) {
+            char c = domain.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash ^= c;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @param domain The domain to check
+     * @return If the exact domain is in the set
+     */
+    public boolean contains(CharSequence domain) {
+        return Arrays.binarySearch(hashes, hash(domain, 0, domain.length())) >= 0;
+    }
+
+    /**
+     * Check a domain and all of its parent domains against the set,
+     * so {@code login.example.com} matches an entry for {@code example.com}
+     *
+     * @param domain The domain to check
+     * @return The part of the domain that is in the set, or null if none of it is
+     */
+    @Nullable
+    public String match(String domain) {
+        if (hashes.length == 0) {
+            return null;
+        }
+
+        int start = 0;
+        int lastDot = domain.lastIndexOf('.');
+        // Never match on the top level domain alone
+        while (start < lastDot) {
+            if (Arrays.binarySearch(hashes, hash(domain, start, domain.length())) >= 0) {
+                return domain.substring(start);
+            }
+
+            int dot = domain.indexOf('.', start);
+            if (dot == -1) {
+                break;
+            }
+            start = dot + 1;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of domains in the set
+     */
+    public int size() {
+        return hashes.length;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Single pass tokenizer that pulls domain names out of message text, used instead of a backtracking regex.
+ * A domain is two or more dot separated labels of letters, digits and hyphens, where no label starts or
+ * ends with a hyphen, no label is longer than 63 characters and the last label is at least 2 characters.
+ * Nothing is allocated until a domain is found.
+ */
+public class DomainTokenizer {
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    private final CharSequence text;
+    private final int length;
+    private int pos;
+
+    /**
+     * Start of the domain being built, or -1 if there isn't one
+     */
+    private int start = -1;
+    private int labels;
+
+    /**
+     * End of the last label that could end the domain, and the number of labels up to it
+     */
+    private int end;
+    private int endLabels;
+
+    /**
+     * A domain found while already returning another one
+     */
+    private String pending;
+
+    public DomainTokenizer(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    /**
+     * Quick check for whether a message could contain a domain at all
+     *
+     * @param text The text to check
+     * @return If the text has a dot in it
+     */
+    public static boolean mightContainDomain(String text) {
+        return text.indexOf('.') != -1;
+    }
+
+    private static boolean isLabelChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-';
+    }
+
+    /**
+     * Find the next domain in the text
+     *
+     * @return The domain or null if there are no more
+     */
+    @Nullable
+    public String next() {
+        if (pending != null) {
+            String found = pending;
+            pending = null;
+            return found;
+        }
+
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (!isLabelChar(c)) {
+                // Either the end of a token or an empty label, both end the current domain
+                pos++;
+                String found = flush();
+                if (found != null) {
+                    return found;
+                }
+                continue;
+            }
+
+            int labelStart = pos;
+            while (pos < length && isLabelChar(text.charAt(pos))) {
+                pos++;
+            }
+            int labelEnd = pos;
+
+            boolean dotFollows = pos < length && text.charAt(pos) == '.';
+            if (dotFollows) {
+                pos++;
+            }
+
+            String found = label(labelStart, labelEnd, dotFollows);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        return flush();
+    }
+
+    /**
+     * Add a label to the current domain
+     *
+     * @return A domain that this label finished, if any
+     */
+    @Nullable
+    private String label(int labelStart, int labelEnd, boolean dotFollows) {
+        if (labelEnd - labelStart > MAX_LABEL_LENGTH) {
+            return flush();
+        }
+
+        int trimmedStart = labelStart;
+        while (trimmedStart < labelEnd && text.charAt(trimmedStart) == '-') {
+            trimmedStart++;
+        }
+        int trimmedEnd = labelEnd;
+        while (trimmedEnd > trimmedStart && text.charAt(trimmedEnd - 1) == '-') {
+            trimmedEnd--;
+        }
+
+        String found = null;
+        if (trimmedStart != labelStart) {
+            // A label can't start with a hyphen, so a new domain can only start after them
+            found = flush();
+        }
+
+        if (trimmedStart == trimmedEnd) {
+            return found == null ? flush() : found;
+        }
+
+        if (start == -1) {
+            start = trimmedStart;
+            labels = 0;
+        }
+        labels++;
+        if (trimmedEnd - trimmedStart >= 2) {
+            end = trimmedEnd;
+            endLabels = labels;
+        }
+
+        // A label ending with a hyphen can only be the last one, the same goes for the end of a token
+        if (trimmedEnd != labelEnd || !dotFollows) {
+            String last = flush();
+            if (found == null) {
+                return last;
+            }
+            pending = last;
+        }
+
+        return found;
+    }
+
+    /**
+     * Finish the current domain
+     *
+     * @return The domain, or null if there wasn't a valid one
+     */
+    @Nullable
+    private String flush() {
+        String found = null;
+        if (start != -1 && endLabels >= 2) {
+            found = text.subSequence(start, end).toString();
+        }
+        start = -1;
+        labels = 0;
+        endLabels = 0;
+        return found;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import com.google.common.net.InetAddresses;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary prefix trie over IP addresses, so banned addresses can be given as CIDR ranges
+ * as well as single addresses. IPv4 and IPv6 entries are kept in separate trees,
+ * and a lookup walks at most one bit per level of the address.
+ */
+public class IpPrefixTrie {
+    private static final int NONE = -1;
+
+    /**
+     * Child node indexes, {@code children[node * 2 + bit]}
+     */
+    private int[] children;
+
+    /**
+     * Index into {@link #entries} of the entry ending at each node, or {@link #NONE}
+     */
+    private int[] terminal;
+    private int nodeCount;
+
+    private final int rootV4;
+    private final int rootV6;
+    private final List<String> entries = new ArrayList<>();
+
+    private IpPrefixTrie() {
+        this.children = new int[64];
+        this.terminal = new int[32];
+        Arrays.fill(children, NONE);
+        Arrays.fill(terminal, NONE);
+
+        this.rootV4 = newNode();
+        this.rootV6 = newNode();
+    }
+
+    /**
+     * Build a trie from a list of addresses and CIDR ranges, invalid entries are skipped
+     *
+     * @param ranges The entries, such as {@code 1.2.3.4}, {@code 10.0.0.0/8} or {@code 2001:db8::/32}
+     * @return The compiled trie
+     */
+    public static IpPrefixTrie compile(Collection<String> ranges) {
+        IpPrefixTrie trie = new IpPrefixTrie();
+        for (String range : ranges) {
+            trie.add(range.trim());
+        }
+        return trie;
+    }
+
+    private int newNode() {
+        if (nodeCount == terminal.length) {
+            int oldLength = terminal.length;
+            children = Arrays.copyOf(children, oldLength * 4);
+            terminal = Arrays.copyOf(terminal, oldLength * 2);
+            Arrays.fill(children, oldLength * 2, children.length, NONE);
+            Arrays.fill(terminal, oldLength, terminal.length, NONE);
+        }
+        return nodeCount++;
+    }
+
+    private void add(String range) {
+        int slash = range.indexOf('/');
+        byte[] address = parseAddress(slash == -1 ? range : range.substring(0, slash));
+        if (address == null) {
+            return;
+        }
+
+        int bits = address.length * 8;
+        int prefix = bits;
+        if (slash != -1) {
+            try {
+                prefix = Integer.parseInt(range.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (prefix < 0 || prefix > bits) {
+                return;
+            }
+        }
+
+        int node = address.length == 4 ? rootV4 : rootV6;
+        for (int i = 0; i < prefix; i++) {
+            int slot = node * 2 + bit(address, i);
+            if (children[slot] == NONE) {
+                int child = newNode();
+                children[slot] = child;
+            }
+            node = children[slot];
+        }
+
+        if (terminal[node] == NONE) {
+            terminal[node] = entries.size();
+            entries.add(range);
+        }
+    }
+
+    /**
+     * Parse an IP literal without ever falling back to a DNS lookup
+     *
+     * @param text The address text
+     * @return The address bytes or null if it isn't a valid address
+     */
+    @Nullable
+    static byte[] parseAddress(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        if (text.indexOf(':') != -1) {
+            // InetAddress.getByName would look anything that isn't a valid literal up in DNS, Guava never does
+            if (!InetAddresses.isInetAddress(text)) {
+                return null;
+            }
+            return InetAddresses.forString(text).getAddress();
+        }
+
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value == -1 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else if (c == '.' && value != -1 && part < 3) {
+                address[part++] = (byte) value;
+                value = -1;
+            } else {
+                return null;
+            }
+        }
+
+        if (part != 3 || value == -1) {
+            return null;
+        }
+        address[3] = (byte) value;
+        return address;
+    }
+
+    private static int bit(byte[] address, int index) {
+        return (address[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    /**
+     * @return If the trie has no entries
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Find the most specific entry containing an address
+     *
+     * @param address The address to check
+     * @return The matching entry as it was given, or null if nothing matches
+     */
+    @Nullable
+    public String match(InetAddress address) {
+        return match(address.getAddress());
+    }
+
+    /**
+     * Find the most specific entry containing an address
+     *
+     * @param address The raw address bytes, 4 for IPv4 or 16 for IPv6
+     * @return The matching entry as it was given, or null if nothing matches
+     */
+    @Nullable
+    public String match(byte[] address) {
+        int node = address.length == 4 ? rootV4 : rootV6;
+        int found = terminal[node];
+
+        int bits = address.length * 8;
+        for (int i = 0; i < bits; i++) {
+            node = children[node * 2 + bit(address, i)];
+            if (node == NONE) {
+                break;
+            }
+            if (terminal[node] != NONE) {
+                found = terminal[node];
+            }
+        }
+
+        return found == NONE ? null : entries.get(found);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of checking a domain, cached by {@link LinkVerdicts}
+ *
+ * @param blocked If messages containing the domain should be removed
+ * @param domain The domain that matched, which can be a parent of the checked domain
+ * @param reason Why the domain was blocked
+ */
+public record LinkVerdict(boolean blocked, @Nullable String domain, @Nullable String reason) {
+    public static final LinkVerdict ALLOW = new LinkVerdict(false, null, null);
+
+    /**
+     * @param domain The domain that matched
+     * @param reason Why the domain was blocked
+     * @return A verdict blocking the domain
+     */
+    public static LinkVerdict block(String domain, String reason) {
+        return new LinkVerdict(true, domain, reason);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per guild cache of link check results keyed by the lower case domain, so a domain that is posted
+ * over and over is only checked the first time. A guild's cache is dropped whenever one of the
+ * settings the checks depend on changes, and every cache is dropped when the phishing list is refreshed.
+ * <p>
+ * Checks hold on to the cache they started with, so results from a check that was still running when
+ * the settings changed land in the old cache and are never seen.
+ */
+public class LinkVerdicts {
+
+    /**
+     * Preferences the link checks depend on
+     */
+    public static final Set<String> KEYS = Set.of("banned-domains", "check-domains", "banned-ips");
+
+    private static final Map<Long, Cache<String, LinkVerdict>> VERDICTS = new ConcurrentHashMap<>();
+
+    /**
+     * Get the verdict cache for a guild
+     *
+     * @param serverID ID of the guild
+     * @return The cache of lower case domain to verdict
+     */
+    public static Cache<String, LinkVerdict> forGuild(long serverID) {
+        return VERDICTS.computeIfAbsent(serverID, id -> CacheBuilder.newBuilder()
+                .expireAfterWrite(10, TimeUnit.MINUTES)
+                .maximumSize(1000)
+                .build());
+    }
+
+    /**
+     * Forget the verdicts for a guild
+     *
+     * @param serverID ID of the guild
+     */
+    public static void invalidate(long serverID) {
+        VERDICTS.remove(serverID);
+    }
+
+    /**
+     * Forget the verdicts for every guild
+     */
+    public static void invalidateAll() {
+        VERDICTS.clear();
+    }
+}
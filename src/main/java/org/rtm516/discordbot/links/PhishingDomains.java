@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.json.JSONArray;
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.util.PropertiesManager;
+import org.jetbrains.annotations.Nullable;
+import pw.chew.chewbotcca.util.RestClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locally held list of known phishing domains, so links can be checked without any network requests.
+ * The list is loaded from a file on startup and, if a feed is configured, refreshed from it in the background
+ * with each successful download written back to the file for the next start.
+ */
+public class PhishingDomains {
+    private static volatile DomainHashSet domains = DomainHashSet.EMPTY;
+
+    /**
+     * Load the list from disk and schedule the feed refresh
+     */
+    public static void init() {
+        Path file = getFile();
+        if (Files.exists(file)) {
+            try {
+                List<String> loaded = parse(Files.readString(file, StandardCharsets.UTF_8));
+                domains = DomainHashSet.of(loaded);
+                DiscordBot.LOGGER.info("Loaded " + domains.size() + " phishing domains");
+            } catch (IOException e) {
+                DiscordBot.LOGGER.error("Unable to load phishing domains from " + file, e);
+            }
+        }
+
+        String feed = PropertiesManager.getPhishingDomainsFeed();
+        if (feed != null && !feed.isEmpty()) {
+            int interval = PropertiesManager.getPhishingDomainsRefresh();
+            DiscordBot.getGeneralThreadPool().scheduleWithFixedDelay(() -> refresh(feed, file), 0, interval, TimeUnit.MINUTES);
+        }
+    }
+
+    private static Path getFile() {
+        return Paths.get(PropertiesManager.getPhishingDomainsFile());
+    }
+
+    /**
+     * Download the feed and swap in the new list, keeping the old one if anything goes wrong
+     *
+     * @param feed The URL of the feed
+     * @param file The file to save the list to
+     */
+    private static void refresh(String feed, Path file) {
+        try {
+            RestClient.Response response = RestClient.get(feed);
+            if (!response.success()) {
+                DiscordBot.LOGGER.warn("Unable to refresh phishing domains, feed returned " + response.code());
+                return;
+            }
+
+            List<String> loaded = parse(response.asString());
+            if (loaded.isEmpty()) {
+                DiscordBot.LOGGER.warn("Phishing domain feed was empty, keeping the current list");
+                return;
+            }
+
+            domains = DomainHashSet.of(loaded);
+            // Domains that were allowed before might be on the new list
+            LinkVerdicts.invalidateAll();
+            DiscordBot.LOGGER.debug("Refreshed " + domains.size() + " phishing domains");
+
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(temp, loaded, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            // Don't let the scheduled task die
+            DiscordBot.LOGGER.warn("Unable to refresh phishing domains", e);
+        }
+    }
+
+    /**
+     * Parse a list of domains, either a JSON array of strings or one domain per line.
+     * Blank lines and lines starting with {@code #} are skipped, and for hosts file style
+     * lines such as {@code 0.0.0.0 example.com} only the last column is used.
+     *
+     * @param body The text to parse
+     * @return The domains in the text
+     */
+    static List<String> parse(String body) {
+        List<String> parsed = new ArrayList<>();
+
+        String trimmed = body.trim();
+        if (trimmed.startsWith("[")) {
+            JSONArray array = new JSONArray(trimmed);
+            for (int i = 0; i < array.length(); i++) {
+                String domain = array.optString(i, "").trim();
+                if (!domain.isEmpty()) {
+                    parsed.add(domain.toLowerCase(Locale.ROOT));
+                }
+            }
+            return parsed;
+        }
+
+        for (String line : trimmed.split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int space = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+            parsed.add(line.substring(space + 1).toLowerCase(Locale.ROOT));
+        }
+        return parsed;
+    }
+
+    /**
+     * Check a domain and its parent domains against the list
+     *
+     * @param domain The domain to check
+     * @return The listed domain that matched, or null if it isn't a known phishing domain
+     */
+    @Nullable
+    public static String match(String domain) {
+        return domains.match(domain);
+    }
+}
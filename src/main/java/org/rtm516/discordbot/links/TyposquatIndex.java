@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.rtm516.discordbot.util.DicesCoefficient;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed index over a guild's safe domains for spotting look-alike domains.
+ * A reversed-label suffix trie answers whether a domain is a safe domain or a subdomain of one,
+ * and an inverted index from bigram to the safe domains containing it counts the shared bigrams
+ * for every safe domain in one pass over the domain being checked, so only safe domains that
+ * share enough bigrams are ever scored.
+ * <p>
+ * Scores are the same as {@link DicesCoefficient#diceCoefficientOptimized(String, String)}.
+ */
+public class TyposquatIndex {
+    public static final TyposquatIndex EMPTY = new TyposquatIndex(List.of());
+
+    private final String[] domains;
+
+    /**
+     * Number of bigrams in each safe domain
+     */
+    private final int[] bigramCounts;
+
+    /**
+     * Sorted distinct bigrams, with {@link #postings} holding the matching safe domain IDs.
+     * A domain ID is repeated once for each time the bigram appears in that domain.
+     */
+    private final int[] bigramKeys;
+    private final int[][] postings;
+
+    private final LabelNode suffixRoot = new LabelNode();
+
+    private TyposquatIndex(List<String> safeDomains) {
+        this.domains = safeDomains.toArray(new String[0]);
+        this.bigramCounts = new int[domains.length];
+
+        Map<Integer, List<Integer>> index = new HashMap<>();
+        for (int id = 0; id < domains.length; id++) {
+            String domain = domains[id];
+            bigramCounts[id] = Math.max(domain.length() - 1, 0);
+            for (int i = 0; i < domain.length() - 1; i++) {
+                index.computeIfAbsent(bigram(domain, i), key -> new ArrayList<>()).add(id);
+            }
+
+            addSuffix(domain);
+        }
+
+        this.bigramKeys = new int[index.size()];
+        int i = 0;
+        for (int key : index.keySet()) {
+            bigramKeys[i++] = key;
+        }
+        Arrays.sort(bigramKeys);
+
+        this.postings = new int[bigramKeys.length][];
+        for (i = 0; i < bigramKeys.length; i++) {
+            // IDs were added in order so these are already sorted
+            postings[i] = index.get(bigramKeys[i]).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Build the index for a list of safe domains
+     *
+     * @param safeDomains The safe domains, the order decides which one is reported when several are similar
+     * @return The compiled index
+     */
+    public static TyposquatIndex compile(List<String> safeDomains) {
+        if (safeDomains.isEmpty()) {
+            return EMPTY;
+        }
+        return new TyposquatIndex(List.copyOf(new LinkedHashSet<>(safeDomains)));
+    }
+
+    private static int bigram(String text, int index) {
+        return text.charAt(index) << 16 | text.charAt(index + 1);
+    }
+
+    private void addSuffix(String domain) {
+        LabelNode node = suffixRoot;
+        int end = domain.length();
+        while (end >= 0) {
+            int dot = domain.lastIndexOf('.', end - 1);
+            node = node.children.computeIfAbsent(domain.substring(dot + 1, end), label -> new LabelNode());
+            end = dot;
+        }
+        node.terminal = true;
+    }
+
+    /**
+     * @param domain The domain to check
+     * @return If the domain is one of the safe domains or a subdomain of one
+     */
+    public boolean isSafe(String domain) {
+        LabelNode node = suffixRoot;
+        int end = domain.length();
+        while (end >= 0) {
+            int dot = domain.lastIndexOf('.', end - 1);
+            node = node.children.get(domain.substring(dot + 1, end));
+            if (node == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+            end = dot;
+        }
+        return false;
+    }
+
+    /**
+     * Find a safe domain that the given domain looks like, while not being it or one of its subdomains.
+     * Domains ending in {@code .ru} are held to a lower threshold as most phishing sites use them.
+     *
+     * @param domain The domain to check
+     * @return The first similar safe domain, or null if there isn't one
+     */
+    @Nullable
+    public String findSimilar(String domain) {
+        if (domains.length == 0 || domain.length() < 2 || isSafe(domain)) {
+            return null;
+        }
+
+        int n = domain.length() - 1;
+        int[] query = new int[n];
+        for (int i = 0; i < n; i++) {
+            query[i] = bigram(domain, i);
+        }
+        Arrays.sort(query);
+
+        // Count the bigrams shared with every safe domain, treating repeated bigrams as separate
+        int[] shared = new int[domains.length];
+        for (int i = 0; i < n; ) {
+            int key = query[i];
+            int queryCount = 1;
+            while (i + queryCount < n && query[i + queryCount] == key) {
+                queryCount++;
+            }
+            i += queryCount;
+
+            int slot = Arrays.binarySearch(bigramKeys, key);
+            if (slot < 0) {
+                continue;
+            }
+
+            int[] posting = postings[slot];
+            for (int j = 0; j < posting.length; ) {
+                int id = posting[j];
+                int domainCount = 1;
+                while (j + domainCount < posting.length && posting[j + domainCount] == id) {
+                    domainCount++;
+                }
+                j += domainCount;
+
+                shared[id] += Math.min(queryCount, domainCount);
+            }
+        }
+
+        boolean strict = domain.endsWith(".ru");
+        for (int id = 0; id < domains.length; id++) {
+            if (shared[id] == 0) {
+                continue;
+            }
+
+            double score = (double) (shared[id] * 2) / (n + bigramCounts[id]);
+            if (strict ? (Math.round(score * 10.0) / 10.0) >= 0.5f : score >= 0.6f) {
+                return domains[id];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The number of safe domains in the index
+     */
+    public int size() {
+        return domains.length;
+    }
+
+    private static class LabelNode {
+        private final Map<String, LabelNode> children = new HashMap<>();
+        private boolean terminal;
+    }
+}
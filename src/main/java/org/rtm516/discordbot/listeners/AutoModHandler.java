@@ -36,8 +36,9 @@ import net.dv8tion.jda.api.entities.automod.AutoModTriggerType;
 import net.dv8tion.jda.api.events.automod.AutoModExecutionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.rtm516.discordbot.DiscordBot;
-import org.rtm516.discordbot.storage.ServerSettings;
+import org.rtm516.discordbot.raid.RaidDetector;
 import org.rtm516.discordbot.util.BotColors;
+import org.rtm516.discordbot.util.LogDispatcher;
 
 import javax.annotation.Nonnull;
 
@@ -62,21 +63,19 @@ public class AutoModHandler extends ListenerAdapter {
         if (event.getTriggerType() == AutoModTriggerType.MEMBER_PROFILE_KEYWORD) return;
 
         long userId = event.getUserIdLong();
-        Integer executions = this.executionCache.getIfPresent(userId);
+        Member member = event.getGuild().getMemberById(userId);
 
-        if (executions == null) {
-            executions = 0;
-        }
+        // During a raid the raid action handles anyone AutoMod catches straight away
+        if (member != null && RaidDetector.punish(member)) return;
 
-        this.executionCache.put(userId, ++executions);
+        // Count atomically so executions arriving together aren't lost, merging also restarts the expiry like put did
+        int executions = this.executionCache.asMap().merge(userId, 1, Integer::sum);
 
         if (executions < 3) return;
 
         // Prevent trying to kick the user multiple times
-        if (this.kickCache.getIfPresent(userId) != null) return;
-        this.kickCache.put(userId, true);
+        if (this.kickCache.asMap().putIfAbsent(userId, true) != null) return;
 
-        Member member = event.getGuild().getMemberById(userId);
         if (member == null) return;
 
         Guild guild = event.getGuild();
@@ -116,6 +115,8 @@ public class AutoModHandler extends ListenerAdapter {
             .setColor(BotColors.WARNING.getColor())
             .build();
 
-        ServerSettings.getLogChannel(guild).sendMessageEmbeds(logEmbed).queue();
+        if (RaidDetector.shouldLog(guild)) {
+            LogDispatcher.send(guild, logEmbed);
+        }
     }
 }
@@ -25,147 +25,208 @@
 
 package org.rtm516.discordbot.listeners;
 
+import com.google.common.cache.Cache;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import org.rtm516.discordbot.links.AntiFishClient;
+import org.rtm516.discordbot.links.DnsResolver;
+import org.rtm516.discordbot.links.DomainTokenizer;
+import org.rtm516.discordbot.links.IpPrefixTrie;
+import org.rtm516.discordbot.links.LinkVerdict;
+import org.rtm516.discordbot.links.LinkVerdicts;
+import org.rtm516.discordbot.links.PhishingDomains;
+import org.rtm516.discordbot.raid.RaidDetector;
+import org.rtm516.discordbot.raid.RaidSignal;
+import org.rtm516.discordbot.storage.GuildSettings;
 import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
-import org.rtm516.discordbot.util.DicesCoefficient;
+import org.rtm516.discordbot.util.LogDispatcher;
+import org.rtm516.discordbot.util.PropertiesManager;
 import org.jetbrains.annotations.NotNull;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import pw.chew.chewbotcca.util.RestClient;
+import org.jetbrains.annotations.Nullable;
 
 import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BadLinksHandler extends ListenerAdapter {
-    private static final Pattern DOMAIN_PATTERN = Pattern.compile("(?:[A-Za-z0-9](?:[A-Za-z0-9-]{0,61}[A-Za-z0-9])?\\.)+[A-Za-z0-9][A-Za-z0-9-]{0,61}[A-Za-z0-9]");
+    private final DnsResolver dnsResolver = new DnsResolver(4);
+    private final AntiFishClient antiFish = PropertiesManager.isAntiFishEnabled() ? new AntiFishClient(2) : null;
 
     @Override
     public void onMessageReceived(@NotNull MessageReceivedEvent event) {
         // Make sure we are in a guild
         if (!event.isFromGuild()) return;
 
+        // Messages without a dot can't contain a domain
+        String content = event.getMessage().getContentRaw();
+        if (!DomainTokenizer.mightContainDomain(content)) {
+            return;
+        }
+
         // Ignore users with the manage message perms
         if (event.getMember() == null || event.getMember().hasPermission(Permission.MESSAGE_MANAGE)) {
             return;
         }
 
         // Find URLs
-        Matcher m = DOMAIN_PATTERN.matcher(event.getMessage().getContentRaw());
+        DomainTokenizer tokenizer = new DomainTokenizer(content);
+        String domain = tokenizer.next();
+        if (domain == null) {
+            return;
+        }
 
-        List<String> checkDomains = ServerSettings.getList(event.getGuild().getIdLong(), "check-domains");
-        List<String> bannedDomains = ServerSettings.getList(event.getGuild().getIdLong(), "banned-domains");
-        List<String> bannedIPs = ServerSettings.getList(event.getGuild().getIdLong(), "banned-ips");
+        Cache<String, LinkVerdict> verdicts = LinkVerdicts.forGuild(event.getGuild().getIdLong());
 
-        boolean foundMatch = false;
+        // Only load the settings once there is a domain that hasn't been seen before
+        GuildSettings settings = null;
+        List<String> asyncDomains = new ArrayList<>();
 
-        while (m.find()) {
-            String domain = m.group();
-            String reason = "";
+        do {
+            String key = domain.toLowerCase(Locale.ROOT);
 
-            for (String bannedDomain : bannedDomains) {
-                if (domain.equals(bannedDomain)) {
-                    foundMatch = true;
-                    reason = "Banned domain";
+            LinkVerdict verdict = verdicts.getIfPresent(key);
+            if (verdict == null) {
+                if (settings == null) {
+                    settings = ServerSettings.getSettings(event.getGuild());
+                }
 
-                    break;
+                verdict = check(settings, key);
+                if (verdict != null) {
+                    verdicts.put(key, verdict);
+                } else if (settings.getBannedIPs().isEmpty() && antiFish == null) {
+                    verdicts.put(key, LinkVerdict.ALLOW);
+                } else if (!asyncDomains.contains(key)) {
+                    asyncDomains.add(key);
                 }
             }
 
-            if (!foundMatch) {
-                boolean compareDomainNeeded = true;
-                for (String checkDomain : checkDomains) {
-                    if (domain.endsWith("." + checkDomain) || domain.equals(checkDomain)) {
-                        // If the domain is a good domain or a subdomain of a good domain, don't compare
-                        compareDomainNeeded = false;
-                        break;
-                    }
-                }
-                if (compareDomainNeeded) {
-                    for (String checkDomain : checkDomains) {
-                        // Is the domain not exact but still close
-                        if (compareDomain(domain, checkDomain)) {
-                            foundMatch = true;
-                            reason = "Similar to safe domain (" + checkDomain + ")";
-                            break;
-                        }
-                    }
-                }
+            if (verdict != null && verdict.blocked()) {
+                removeMessage(event, verdict);
+                return;
             }
+        } while ((domain = tokenizer.next()) != null);
 
-            if (!foundMatch && !bannedIPs.isEmpty()) {
-                try {
-                    String address = InetAddress.getAllByName(domain)[0].getHostAddress();
+        if (!asyncDomains.isEmpty()) {
+            checkAsync(event, asyncDomains, settings.getBannedIPs(), verdicts);
+        }
+    }
 
-                    for (String checkIP : bannedIPs) {
-                        // Check if the ip is banned
-                        if (address.equals(checkIP)) {
-                            foundMatch = true;
-                            reason = "Domain resolves to banned IP (" + checkIP + ")";
+    /**
+     * Run the checks that don't need any network requests
+     *
+     * @param settings The guild settings
+     * @param domain The lower case domain to check
+     * @return The verdict if the domain is blocked, or null if it still needs the other checks
+     */
+    @Nullable
+    private LinkVerdict check(GuildSettings settings, String domain) {
+        if (settings.isBannedDomain(domain)) {
+            return LinkVerdict.block(domain, "Banned domain");
+        }
+
+        // Is the domain not a good domain or a subdomain of one, but still close
+        String similarDomain = settings.getCheckDomains().findSimilar(domain);
+        if (similarDomain != null) {
+            return LinkVerdict.block(domain, "Similar to safe domain (" + similarDomain + ")");
+        }
 
-                            break;
+        String phishingDomain = PhishingDomains.match(domain);
+        if (phishingDomain != null) {
+            return LinkVerdict.block(phishingDomain, "Known phishing domain");
+        }
+
+        return null;
+    }
+
+    /**
+     * Run the checks that need network requests in the background,
+     * removing the message if any of the domains point at a banned IP or are flagged by anti-fish.
+     * Each domain's verdict is cached once its checks finish.
+     *
+     * @param event The message event
+     * @param domains The lower case domains to check
+     * @param bannedIPs The banned addresses and ranges for the guild
+     * @param verdicts The verdict cache for the guild
+     */
+    private void checkAsync(MessageReceivedEvent event, List<String> domains, IpPrefixTrie bannedIPs, Cache<String, LinkVerdict> verdicts) {
+        AtomicBoolean removed = new AtomicBoolean();
+        for (String domain : domains) {
+            CompletableFuture<LinkVerdict> fishCheck = CompletableFuture.completedFuture(LinkVerdict.ALLOW);
+            if (antiFish != null) {
+                fishCheck = antiFish.check(domain).thenApply(match -> match
+                        .map(found -> LinkVerdict.block(found.domain(), found.reason()))
+                        .orElse(LinkVerdict.ALLOW));
+            }
+
+            CompletableFuture<LinkVerdict> addressCheck = CompletableFuture.completedFuture(LinkVerdict.ALLOW);
+            if (!bannedIPs.isEmpty()) {
+                addressCheck = dnsResolver.resolve(domain).thenApply(addresses -> {
+                    for (InetAddress address : addresses) {
+                        // Check if the ip is banned
+                        String checkIP = bannedIPs.match(address);
+                        if (checkIP != null) {
+                            return LinkVerdict.block(domain, "Domain resolves to banned IP (" + checkIP + ")");
                         }
                     }
-                } catch (UnknownHostException ignored) { }
+                    return LinkVerdict.ALLOW;
+                });
             }
 
-            if (!foundMatch) {
-                // Make request to https://anti-fish.bitflow.dev/check
-                JSONObject body = new JSONObject().put("message", event.getMessage().getContentRaw());
-                JSONObject response = RestClient.post("https://anti-fish.bitflow.dev/check", body).asJSONObject();
-                if (response.getBoolean("match")) {
-                    JSONArray matches = response.getJSONArray("matches");
-                    for (int i = 0; i < matches.length(); i++) {
-                        JSONObject match = matches.getJSONObject(i);
-                        if (match.getFloat("trust_rating") >= 0.5f) {
-                            foundMatch = true;
-                            domain = match.getString("domain");
-                            reason = "`anti-fish.bitflow.dev` flagged as `" + match.getString("type") + "` from `" + match.getString("source") + "` with a trust rating of " + match.getFloat("trust_rating");
-                            break;
+            for (CompletableFuture<LinkVerdict> check : List.of(fishCheck, addressCheck)) {
+                check.thenAccept(verdict -> {
+                    if (verdict.blocked()) {
+                        verdicts.put(domain, verdict);
+                        if (removed.compareAndSet(false, true)) {
+                            removeMessage(event, verdict);
                         }
                     }
-                }
+                });
             }
 
-            if (foundMatch) {
-                ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                        .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
-                        .setDescription("**Link removed, sent by** " + event.getAuthor().getAsMention() + " **deleted in** " + event.getChannel().getAsMention() + "\n" + event.getMessage().getContentRaw())
-                        .addField("Block reason", reason, false)
-                        .addField("Matched domain", "`" + domain + "`", false)
-                        .setFooter("Author: " + event.getAuthor().getId() + " | Message ID: " + event.getMessageId())
-                        .setTimestamp(Instant.now())
-                        .setColor(BotColors.FAILURE.getColor())
-                        .build()).queue();
-
-                LogHandler.PURGED_MESSAGES.add(event.getMessageId());
-
-                event.getMessage().delete().queue();
-
-                return;
-            }
+            // Only remember the domain as safe if both checks finished without flagging it
+            fishCheck.thenAcceptBoth(addressCheck, (fish, address) -> {
+                if (!fish.blocked() && !address.blocked()) {
+                    verdicts.put(domain, LinkVerdict.ALLOW);
+                }
+            });
         }
     }
 
     /**
-     * Compare 2 domains using {@link DicesCoefficient#diceCoefficientOptimized(String, String)} but be more strict with .ru domains
+     * Log and delete a message that contained a bad link
      *
-     * @param domain Domain to compare
-     * @param checkDomain Target domain
-     * @return If they are similar
+     * @param event The message event
+     * @param verdict The verdict that blocked the link
      */
-    private boolean compareDomain(String domain, String checkDomain) {
-        if (domain.endsWith(".ru")) { // Most phishing sites are ru so be more strict with them
-            return (Math.round(DicesCoefficient.diceCoefficientOptimized(domain, checkDomain) * 10.0) / 10.0) >= 0.5f;
-        } else {
-            return DicesCoefficient.diceCoefficientOptimized(domain, checkDomain) >= 0.6f;
+    private void removeMessage(MessageReceivedEvent event, LinkVerdict verdict) {
+        RaidDetector.record(event.getGuild(), RaidSignal.LINK_HIT);
+        if (event.getMember() != null) {
+            RaidDetector.punish(event.getMember());
+        }
+
+        if (RaidDetector.shouldLog(event.getGuild())) {
+            LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                    .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
+                    .setDescription("**Link removed, sent by** " + event.getAuthor().getAsMention() + " **deleted in** " + event.getChannel().getAsMention() + "\n" + event.getMessage().getContentRaw())
+                    .addField("Block reason", verdict.reason(), false)
+                    .addField("Matched domain", "`" + verdict.domain() + "`", false)
+                    .setFooter("Author: " + event.getAuthor().getId() + " | Message ID: " + event.getMessageId())
+                    .setTimestamp(Instant.now())
+                    .setColor(BotColors.FAILURE.getColor())
+                    .build());
         }
+
+        LogHandler.PURGED_MESSAGES.add(event.getMessageIdLong());
+
+        event.getMessage().delete().queue(null, new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE));
     }
 }
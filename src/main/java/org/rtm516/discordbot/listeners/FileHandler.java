@@ -42,12 +42,13 @@ import pw.chew.chewbotcca.util.RestClient;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class FileHandler extends ListenerAdapter {
+    private static final List<String> DEFAULT_EXTENSIONS = List.of("txt", "log", "yml", "0");
+
     private final Cache<Long, Long> fileCache;
 
     public FileHandler() {
@@ -60,20 +61,16 @@ public class FileHandler extends ListenerAdapter {
     @Override
     public void onMessageReceived(@NotNull MessageReceivedEvent event) {
         for (Message.Attachment attachment : event.getMessage().getAttachments()) {
-            List<String> extensions;
+            boolean convert;
 
-            // Get the guild extensions and if not in a guild just use some defaults
+            // Check the guild extensions and if not in a guild just use some defaults
             if (event.isFromGuild()) {
-                extensions = ServerSettings.getList(event.getGuild().getIdLong(), "convert-extensions");
+                convert = ServerSettings.getSettings(event.getGuild()).shouldConvertExtension(attachment.getFileExtension());
             } else {
-                extensions = new ArrayList<>();
-                extensions.add("txt");
-                extensions.add("log");
-                extensions.add("yml");
-                extensions.add("0");
+                convert = DEFAULT_EXTENSIONS.contains(attachment.getFileExtension());
             }
 
-            if (extensions.contains(attachment.getFileExtension())) {
+            if (convert) {
                 EmbedBuilder embed = new EmbedBuilder();
 
                 // Handled by Discord's new display feature
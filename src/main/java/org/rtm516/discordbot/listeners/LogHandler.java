@@ -25,83 +25,128 @@
 
 package org.rtm516.discordbot.listeners;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.audit.AuditLogChange;
 import net.dv8tion.jda.api.audit.AuditLogKey;
-import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Invite;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
 import net.dv8tion.jda.api.events.guild.GuildAuditLogEntryCreateEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.MessageDeleteEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.events.message.MessageUpdateEvent;
+import net.dv8tion.jda.api.events.session.SessionRecreateEvent;
+import net.dv8tion.jda.api.exceptions.ErrorHandler;
 import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 import net.dv8tion.jda.api.utils.TimeFormat;
 import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.cache.CachedMessage;
+import org.rtm516.discordbot.cache.InviteCache;
+import org.rtm516.discordbot.cache.MessageCache;
+import org.rtm516.discordbot.cache.MessageLog;
+import org.rtm516.discordbot.raid.RaidDetector;
 import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
 import org.rtm516.discordbot.util.BotHelpers;
+import org.rtm516.discordbot.util.ExpiringLongSet;
+import org.rtm516.discordbot.util.LogDispatcher;
+import org.rtm516.discordbot.util.PropertiesManager;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 public class LogHandler extends ListenerAdapter {
 
-    public static final List<String> PURGED_MESSAGES = new ArrayList<>();
+    /**
+     * Messages deleted by the bot that shouldn't be logged, these expire in case the delete event never arrives
+     */
+    public static final ExpiringLongSet PURGED_MESSAGES = new ExpiringLongSet(8192, 10, TimeUnit.MINUTES);
 
-    private final Map<Long, Cache<Long, Message>> messageCache = new HashMap<>();
+    private final MessageCache messageCache = new MessageCache(PropertiesManager.getMessageCacheSize() * 1024L * 1024L);
+    private final MessageLog messageLog = openMessageLog();
+    private final InviteCache inviteCache = new InviteCache();
 
-    private Message getCacheMessage(Guild guild, Long messageId) {
-        Cache<Long, Message> cache = messageCache.get(guild.getIdLong());
-        // Insert the cache if there is none
-        if (cache == null) {
-            cache = CacheBuilder.newBuilder()
-                    .expireAfterWrite(24, TimeUnit.HOURS)
-                    .maximumSize(1000)
-                    .build();
-            messageCache.put(guild.getIdLong(), cache);
+    public LogHandler() {
+        DiscordBot.getGeneralThreadPool().scheduleAtFixedRate(this::logCacheStats, 1, 1, TimeUnit.HOURS);
 
-            return null;
+        if (messageLog != null) {
+            DiscordBot.getGeneralThreadPool().scheduleAtFixedRate(messageLog::expire, 1, 1, TimeUnit.HOURS);
         }
+    }
 
-        return cache.getIfPresent(messageId);
+    /**
+     * Write the message log out to disk, called on shutdown
+     */
+    public void close() {
+        if (messageLog != null) {
+            messageLog.close();
+        }
     }
 
-    private void putCacheMessage(Guild guild, Message message) {
-        Cache<Long, Message> cache = messageCache.get(guild.getIdLong());
-        // Insert the cache if there is none
-        if (cache == null) {
-            cache = CacheBuilder.newBuilder()
-                    .expireAfterWrite(24, TimeUnit.HOURS)
-                    .build();
-            messageCache.put(guild.getIdLong(), cache);
+    @Nullable
+    private static MessageLog openMessageLog() {
+        String directory = PropertiesManager.getMessageLogDirectory();
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return new MessageLog(Path.of(directory), 24, TimeUnit.HOURS);
+        } catch (IOException e) {
+            DiscordBot.LOGGER.error("Failed to open the message log, only the in memory cache will be used", e);
+            return null;
         }
+    }
 
-        cache.put(message.getIdLong(), message);
+    private void logCacheStats() {
+        CacheStats stats = messageCache.getStats();
+        DiscordBot.LOGGER.info(String.format("Message cache: %d messages, %.1f%% hit rate, %d evictions. Message log: %d messages. Purged messages: %d tracked, %d expired",
+                messageCache.size(), stats.hitRate() * 100, stats.evictionCount(), messageLog != null ? messageLog.size() : 0, PURGED_MESSAGES.size(), PURGED_MESSAGES.expiredCount()));
     }
 
-    private void removeCacheMessage(Guild guild, Long messageId) {
-        Cache<Long, Message> cache = messageCache.get(guild.getIdLong());
-        if (cache == null) {
-            return;
+    private void cacheMessage(Message message) {
+        CachedMessage cachedMessage = CachedMessage.of(message);
+        messageCache.put(message.getIdLong(), cachedMessage);
+
+        if (messageLog != null) {
+            messageLog.append(message.getIdLong(), cachedMessage);
+        }
+    }
+
+    @Nullable
+    private CachedMessage getCachedMessage(long messageId) {
+        CachedMessage cachedMessage = messageCache.get(messageId);
+
+        // Fall back to the log for messages that were evicted or sent before a restart
+        if (cachedMessage == null && messageLog != null) {
+            cachedMessage = messageLog.get(messageId);
         }
 
-        cache.invalidate(messageId);
+        return cachedMessage;
+    }
+
+    private void removeCachedMessage(long messageId) {
+        messageCache.remove(messageId);
+
+        if (messageLog != null) {
+            messageLog.remove(messageId);
+        }
     }
 
     @Override
@@ -151,44 +196,47 @@ public class LogHandler extends ListenerAdapter {
         }
 
         // Send the embed as a reply and to the log
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setTitle(actionTitle)
-                    .addField("User", targetUser.getAsMention(), false)
-                    .addField("Staff member", staffUser.getAsMention(), false)
-                    .addField("Reason", reason, false)
-                    .setTimestamp(Instant.now())
-                    .setColor(color)
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setTitle(actionTitle)
+                .addField("User", targetUser.getAsMention(), false)
+                .addField("Staff member", staffUser.getAsMention(), false)
+                .addField("Reason", reason, false)
+                .setTimestamp(Instant.now())
+                .setColor(color)
+                .build());
     }
 
     @Override
     public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setAuthor("Member Joined", null, event.getUser().getAvatarUrl())
-                    .setDescription(event.getUser().getAsMention() + " " + event.getUser().getAsTag())
-                    .addField("Account Created", TimeFormat.RELATIVE.format(event.getUser().getTimeCreated().toInstant()), false)
-                    .setThumbnail(event.getUser().getAvatarUrl())
-                    .setFooter("ID: " + event.getUser().getId())
-                    .setTimestamp(Instant.now())
-                    .setColor(BotColors.SUCCESS.getColor())
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
+        // Joins are summarised during raids
+        if (!RaidDetector.shouldLog(event.getGuild())) {
+            return;
+        }
+
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setAuthor("Member Joined", null, event.getUser().getAvatarUrl())
+                .setDescription(event.getUser().getAsMention() + " " + event.getUser().getAsTag())
+                .addField("Account Created", TimeFormat.RELATIVE.format(event.getUser().getTimeCreated().toInstant()), false)
+                .setThumbnail(event.getUser().getAvatarUrl())
+                .setFooter("ID: " + event.getUser().getId())
+                .setTimestamp(Instant.now())
+                .setColor(BotColors.SUCCESS.getColor())
+                .build());
     }
 
     @Override
     public void onGuildMemberRemove(@NotNull GuildMemberRemoveEvent event) {
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setAuthor("Member Left", null, event.getUser().getAvatarUrl())
-                    .setDescription(event.getUser().getAsMention() + " " + event.getUser().getAsTag())
-                    .setFooter("ID: " + event.getUser().getId())
-                    .setTimestamp(Instant.now())
-                    .setColor(BotColors.WARNING.getColor())
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
+        if (!RaidDetector.shouldLog(event.getGuild())) {
+            return;
+        }
+
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setAuthor("Member Left", null, event.getUser().getAvatarUrl())
+                .setDescription(event.getUser().getAsMention() + " " + event.getUser().getAsTag())
+                .setFooter("ID: " + event.getUser().getId())
+                .setTimestamp(Instant.now())
+                .setColor(BotColors.WARNING.getColor())
+                .build());
     }
 
     @Override
@@ -203,25 +251,23 @@ public class LogHandler extends ListenerAdapter {
 
         // Ignore bots
         if (event.getAuthor().isBot()) {
-            putCacheMessage(event.getGuild(), event.getMessage());
+            cacheMessage(event.getMessage());
             return;
         }
 
-        Message cachedMessage = getCacheMessage(event.getGuild(), event.getMessage().getIdLong());
+        CachedMessage cachedMessage = getCachedMessage(event.getMessage().getIdLong());
 
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
-                    .setDescription("**Message edited in **" + event.getChannel().getAsMention() + " [Jump to Message](" + event.getMessage().getJumpUrl() + ")")
-                    .addField("Before", cachedMessage != null ? BotHelpers.trim(cachedMessage.getContentRaw(), 450) : "*Old message not cached*", false)
-                    .addField("After", BotHelpers.trim(event.getMessage().getContentRaw(), 450), false)
-                    .setFooter("User ID: " + event.getAuthor().getId())
-                    .setTimestamp(Instant.now())
-                    .setColor(BotColors.NEUTRAL.getColor())
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
-
-        putCacheMessage(event.getGuild(), event.getMessage());
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
+                .setDescription("**Message edited in **" + event.getChannel().getAsMention() + " [Jump to Message](" + event.getMessage().getJumpUrl() + ")")
+                .addField("Before", cachedMessage != null ? BotHelpers.trim(cachedMessage.getContent(), 450) : "*Old message not cached*", false)
+                .addField("After", BotHelpers.trim(event.getMessage().getContentRaw(), 450), false)
+                .setFooter("User ID: " + event.getAuthor().getId())
+                .setTimestamp(Instant.now())
+                .setColor(BotColors.NEUTRAL.getColor())
+                .build());
+
+        cacheMessage(event.getMessage());
     }
 
     @Override
@@ -235,30 +281,44 @@ public class LogHandler extends ListenerAdapter {
         }
 
         // Do this before the invite log just incase its removed
-        putCacheMessage(event.getGuild(), event.getMessage());
+        cacheMessage(event.getMessage());
 
+        // Resolve the invites off the event thread, repeats of the same invite come from the cache
         for (String inviteCode : event.getMessage().getInvites()) {
-            try {
-                Invite invite = Invite.resolve(event.getJDA(), inviteCode, true).complete();
-
-                try {
-                    ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                            .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
-                            .setDescription("**Invite posted for " + invite.getGuild().getName() + "** " + event.getChannel().getAsMention() + "\n" + invite.getUrl())
-                            .addField("Inviter", invite.getInviter() != null ? invite.getInviter().getAsTag() : "Unknown", true)
-                            .addField("Channel", invite.getChannel() != null ? invite.getChannel().getName() : "Group", true)
-                            .addField("Members", invite.getGuild().getOnlineCount() + "/" + invite.getGuild().getMemberCount(), true)
-                            .setFooter("ID: " + event.getAuthor().getId())
-                            .setTimestamp(Instant.now())
-                            .setColor(BotColors.NEUTRAL.getColor())
-                            .build()).queue();
-                } catch (IllegalArgumentException ignored) { }
-
-                // Bypass for users with MESSAGE_MANAGE permission
-                if (event.getMember() != null && !event.getMember().hasPermission(Permission.MESSAGE_MANAGE) && !ServerSettings.getList(event.getGuild().getIdLong(), "allowed-invites").contains(invite.getGuild().getId())) {
-                    event.getMessage().delete().complete();
+            inviteCache.resolve(event.getJDA(), inviteCode).thenAccept(invite -> {
+                // Group DM invites don't have a guild
+                Invite.Guild inviteGuild = invite.getGuild();
+
+                EmbedBuilder embed = new EmbedBuilder()
+                        .setAuthor(event.getAuthor().getAsTag(), null, event.getAuthor().getAvatarUrl())
+                        .addField("Inviter", invite.getInviter() != null ? invite.getInviter().getAsTag() : "Unknown", true)
+                        .addField("Channel", invite.getChannel() != null ? invite.getChannel().getName() : "Group", true)
+                        .setFooter("ID: " + event.getAuthor().getId())
+                        .setTimestamp(Instant.now())
+                        .setColor(BotColors.NEUTRAL.getColor());
+                if (inviteGuild != null) {
+                    embed.setDescription("**Invite posted for " + inviteGuild.getName() + "** " + event.getChannel().getAsMention() + "\n" + invite.getUrl())
+                            .addField("Members", inviteGuild.getOnlineCount() + "/" + inviteGuild.getMemberCount(), true);
+                } else {
+                    embed.setDescription("**Group invite posted** " + event.getChannel().getAsMention() + "\n" + invite.getUrl());
+                }
+                LogDispatcher.send(event.getGuild(), embed.build());
+
+                // Bypass for users with MESSAGE_MANAGE permission, group invites are never on the allowed list
+                if (event.getMember() != null && !event.getMember().hasPermission(Permission.MESSAGE_MANAGE)
+                        && (inviteGuild == null || !ServerSettings.getSettings(event.getGuild()).isInviteAllowed(inviteGuild.getIdLong()))) {
+                    // Another invite in the same message may have already removed it
+                    event.getMessage().delete().queue(null, new ErrorHandler().ignore(ErrorResponse.UNKNOWN_MESSAGE));
                 }
-            } catch (ErrorResponseException ignored) { }
+            }).exceptionally(throwable -> {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+
+                // Unknown or expired invites are expected, anything else is worth knowing about
+                if (!(cause instanceof ErrorResponseException)) {
+                    DiscordBot.LOGGER.error("Failed to handle invite " + inviteCode + " in " + event.getGuild().getId(), cause);
+                }
+                return null;
+            });
         }
     }
 
@@ -268,11 +328,11 @@ public class LogHandler extends ListenerAdapter {
         if (!event.isFromGuild()) return;
 
         // Don't show purged messages or non-logged channels
-        if (PURGED_MESSAGES.remove(event.getMessageId()) || ServerSettings.shouldNotLogChannel(event.getChannel())) {
+        if (PURGED_MESSAGES.remove(event.getMessageIdLong()) || ServerSettings.shouldNotLogChannel(event.getChannel())) {
             return;
         }
 
-        Message cachedMessage = getCacheMessage(event.getGuild(), event.getMessageIdLong());
+        CachedMessage cachedMessage = getCachedMessage(event.getMessageIdLong());
 
         String authorTag = "Unknown";
         String authorMention = "Unknown";
@@ -282,29 +342,46 @@ public class LogHandler extends ListenerAdapter {
 
         if (cachedMessage != null) {
             // Don't show delete messages if the author was a bot
-            if (cachedMessage.getAuthor().isBot()) {
-                removeCacheMessage(event.getGuild(), event.getMessageIdLong());
+            if (cachedMessage.isBot()) {
+                removeCachedMessage(event.getMessageIdLong());
                 return;
             }
 
-            authorTag = cachedMessage.getAuthor().getAsTag();
-            authorMention = cachedMessage.getAuthor().getAsMention();
-            authorAvatar = cachedMessage.getAuthor().getAvatarUrl();
-            authorId = cachedMessage.getAuthor().getId();
-            message = cachedMessage.getContentRaw();
+            authorTag = cachedMessage.getAuthorTag();
+            authorMention = cachedMessage.getAuthorMention();
+            authorAvatar = cachedMessage.getAvatarUrl();
+            authorId = String.valueOf(cachedMessage.getAuthorId());
+            message = cachedMessage.getContent();
         }
 
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setAuthor(authorTag, null, authorAvatar)
-                    .setDescription("**Message sent by** " + authorMention + " **deleted in** " + event.getChannel().getAsMention() + "\n" + BotHelpers.trim(message, 900))
-                    .setFooter("Author: " + authorId + " | Message ID: " + event.getMessageId())
-                    .setTimestamp(Instant.now())
-                    .setColor(BotColors.WARNING.getColor())
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
-
-        removeCacheMessage(event.getGuild(), event.getMessageIdLong());
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setAuthor(authorTag, null, authorAvatar)
+                .setDescription("**Message sent by** " + authorMention + " **deleted in** " + event.getChannel().getAsMention() + "\n" + BotHelpers.trim(message, 900))
+                .setFooter("Author: " + authorId + " | Message ID: " + event.getMessageId())
+                .setTimestamp(Instant.now())
+                .setColor(BotColors.WARNING.getColor())
+                .build());
+
+        removeCachedMessage(event.getMessageIdLong());
+    }
+
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event) {
+        if (event.isFromGuild()) {
+            ServerSettings.invalidateLogChannel(event.getGuild().getIdLong());
+        }
+    }
+
+    @Override
+    public void onSessionRecreate(@NotNull SessionRecreateEvent event) {
+        // The old channel objects are replaced when the session is recreated
+        ServerSettings.invalidateLogChannels();
+    }
+
+    @Override
+    public void onGuildLeave(@NotNull GuildLeaveEvent event) {
+        ServerSettings.invalidateLogChannel(event.getGuild().getIdLong());
+        LogDispatcher.remove(event.getGuild().getIdLong());
     }
 
     @Override
@@ -323,14 +400,12 @@ public class LogHandler extends ListenerAdapter {
             description = event.getMember().getAsMention() + " **left voice channel " + event.getChannelLeft().getAsMention() + "**";
         }
 
-        try {
-            ServerSettings.getLogChannel(event.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                    .setAuthor(event.getMember().getUser().getAsTag(), null, event.getMember().getUser().getAvatarUrl())
-                    .setDescription(description)
-                    .setFooter("ID: " + event.getMember().getId())
-                    .setTimestamp(Instant.now())
-                    .setColor((isJoin || isMove) ? BotColors.SUCCESS.getColor() : BotColors.FAILURE.getColor())
-                    .build()).queue();
-        } catch (IllegalArgumentException ignored) { }
+        LogDispatcher.send(event.getGuild(), new EmbedBuilder()
+                .setAuthor(event.getMember().getUser().getAsTag(), null, event.getMember().getUser().getAvatarUrl())
+                .setDescription(description)
+                .setFooter("ID: " + event.getMember().getId())
+                .setTimestamp(Instant.now())
+                .setColor((isJoin || isMove) ? BotColors.SUCCESS.getColor() : BotColors.FAILURE.getColor())
+                .build());
     }
 }
@@ -31,15 +31,16 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.rtm516.discordbot.DiscordBot;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 public class PersistentRoleHandler extends ListenerAdapter {
     @Override
     public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
-        List<Role> roles = DiscordBot.storageManager.getPersistentRoles(event.getMember());
-
-        for (Role role : roles) {
-            event.getGuild().addRoleToMember(event.getMember(), role).queue();
-        }
+        DiscordBot.asyncStorageManager.getPersistentRoles(event.getMember()).thenAccept(roles -> {
+            for (Role role : roles) {
+                event.getGuild().addRoleToMember(event.getMember(), role).queue();
+            }
+        }).exceptionally(throwable -> {
+            DiscordBot.LOGGER.error("Failed to restore persistent roles for " + event.getMember().getId() + " in " + event.getGuild().getId(), throwable);
+            return null;
+        });
     }
 }
@@ -32,49 +32,39 @@ import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameE
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.filter.GuildFilters;
+import org.rtm516.discordbot.filter.TextNormaliser;
+import org.rtm516.discordbot.filter.WordFilter;
+import org.rtm516.discordbot.raid.RaidDetector;
+import org.rtm516.discordbot.raid.RaidSignal;
 import org.rtm516.discordbot.storage.ServerSettings;
 import org.rtm516.discordbot.util.BotColors;
 import org.rtm516.discordbot.util.BotHelpers;
+import org.rtm516.discordbot.util.ExpiringLongSet;
+import org.rtm516.discordbot.util.LogDispatcher;
 import org.jetbrains.annotations.NotNull;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class SwearHandler extends ListenerAdapter {
 
-    private static final Pattern CLEAN_PATTERN = Pattern.compile("[^\\p{N}\\p{L} ]", Pattern.UNICODE_CHARACTER_CLASS);
-    private static final Pattern NON_ASCII_PATTERN = Pattern.compile("([^\\p{ASCII}])");
-    private static final Map<String,String> REPLACE_TOKENS = new HashMap<>();
-
-    public static final List<Long> filteredMessages = new ArrayList<>();
-    public static final List<Pattern> filterPatterns = new ArrayList<>();
+    /**
+     * Messages that have been filtered, these expire after long enough for the rest of the events for them to fire
+     */
+    public static final ExpiringLongSet filteredMessages = new ExpiringLongSet(4096, 5, TimeUnit.SECONDS);
+    public static volatile WordFilter filter = WordFilter.EMPTY;
     public static String[] nicknames;
 
-    static {
-        // Add some standard replacement tokens
-        // TODO: Find a better way of doing this if we get duplicate chars
-        REPLACE_TOKENS.put("\u0430", "a");
-        REPLACE_TOKENS.put("\u043A", "k");
-        REPLACE_TOKENS.put("\u0441", "c");
-        REPLACE_TOKENS.put("\u0443", "y");
-        REPLACE_TOKENS.put("\u0435", "e");
-        REPLACE_TOKENS.put("\u0445", "x");
-        REPLACE_TOKENS.put("\u0440", "p");
-        REPLACE_TOKENS.put("\u043e", "o");
-    }
-
     public static void loadFilters() {
+        List<String> entries = new ArrayList<>();
         int fileCount = 0;
         try {
             for (String fileName : BotHelpers.getResourceListing(SwearHandler.class, "filters/")) {
@@ -82,16 +72,16 @@ public class SwearHandler extends ListenerAdapter {
                     fileCount++;
                     // Load the lines
                     String[] lines = new String(BotHelpers.bytesFromResource("filters/" + fileName), StandardCharsets.UTF_8).split("\n");
-                    for (String line : lines) {
-                        filterPatterns.add(Pattern.compile("(^| )" + line.trim() + "( |$)", Pattern.CASE_INSENSITIVE));
-                    }
+                    entries.addAll(Arrays.asList(lines));
                 }
             }
         } catch (IOException | URISyntaxException e) {
             DiscordBot.LOGGER.error("Failed to load filters", e);
         }
 
-        DiscordBot.LOGGER.info("Loaded " + filterPatterns.size() + " filter patterns from " + fileCount + " files");
+        filter = WordFilter.compile(entries);
+
+        DiscordBot.LOGGER.info("Loaded " + filter.size() + " filter entries from " + fileCount + " files");
 
         nicknames = new String(BotHelpers.bytesFromResource("nicknames.wlist"), StandardCharsets.UTF_8).trim().split("\n");
 
@@ -99,31 +89,29 @@ public class SwearHandler extends ListenerAdapter {
     }
 
     @Nullable
-    private Pattern checkString(String input) {
-        // TODO: Maybe only clean start and end? Then run through the same as normalInput?
-        input = input.toLowerCase();
-        String cleanInput = CLEAN_PATTERN.matcher(input).replaceAll("");
-        String cleanInputSpaces = CLEAN_PATTERN.matcher(input).replaceAll(" ");
-        String normalInput = Normalizer.normalize(input, Normalizer.Form.NFD).replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-
-        // Find all non ascii chars and normalise them based on REPLACE_TOKENS
-        Matcher matcher = NON_ASCII_PATTERN.matcher(normalInput);
-
-        StringBuilder sb = new StringBuilder();
-        while (matcher.find()) {
-            matcher.appendReplacement(sb, REPLACE_TOKENS.getOrDefault(matcher.group(1), matcher.group(1)));
+    private String checkString(String input, long serverID) {
+        TextNormaliser.Normalised normalised = TextNormaliser.normalise(input);
+
+        String match = find(filter, normalised);
+        if (match == null) {
+            // Then the guild's own words
+            match = find(GuildFilters.getFilter(serverID), normalised);
         }
-        matcher.appendTail(sb);
 
-        normalInput = sb.toString();
+        return match;
+    }
 
-        for (Pattern filterPattern : filterPatterns) {
-            if (filterPattern.matcher(cleanInput).find() || filterPattern.matcher(cleanInputSpaces).find() || filterPattern.matcher(normalInput).find()) {
-                return filterPattern;
-            }
+    @Nullable
+    private static String find(WordFilter filter, TextNormaliser.Normalised normalised) {
+        String match = filter.find(normalised.clean());
+        if (match == null) {
+            match = filter.find(normalised.spaced());
+        }
+        if (match == null) {
+            match = filter.find(normalised.folded());
         }
 
-        return null;
+        return match;
     }
 
     public static String getRandomNick() {
@@ -146,15 +134,19 @@ public class SwearHandler extends ListenerAdapter {
             return;
         }
 
-        String disableFilter = DiscordBot.storageManager.getServerPreference(message.getGuild().getIdLong(), "disable-filter");
-        if (disableFilter != null && !disableFilter.isEmpty()) {
+        if (ServerSettings.getSettings(message.getGuild()).isFilterDisabled()) {
             return;
         }
 
-        Pattern filterPattern;
-        if ((filterPattern = checkString(message.getContentRaw())) != null) {
+        String filterMatch;
+        if ((filterMatch = checkString(message.getContentRaw(), message.getGuild().getIdLong())) != null) {
             filteredMessages.add(message.getIdLong());
 
+            RaidDetector.record(message.getGuild(), RaidSignal.FILTER_HIT);
+            if (message.getMember() != null) {
+                RaidDetector.punish(message.getMember());
+            }
+
             // Delete message
             message.delete().queue(unused -> {
                 if (notifyUser) {
@@ -164,27 +156,23 @@ public class SwearHandler extends ListenerAdapter {
                 }
 
                 // Send a log to the admin channel
-                ServerSettings.getLogChannel(message.getGuild()).sendMessageEmbeds(new EmbedBuilder()
-                        .setTitle("Profanity removed")
-                        .setDescription("**Sender:** " + message.getAuthor().getAsMention() + "\n" +
-                                "**Channel:** " + message.getChannel().getAsMention() + "\n" +
-                                "**Regex:** `" + filterPattern + "`\n" +
-                                "**Message:** " + message.getContentRaw())
-                        .setColor(BotColors.FAILURE.getColor())
-                        .build()).queue();
-
-                // Remove the message from filteredMessages after 5s
-                // this should be enough time for the rest of the events to fire
-                DiscordBot.getGeneralThreadPool().schedule(() -> {
-                    filteredMessages.remove(message.getIdLong());
-                }, 5, TimeUnit.SECONDS);
+                if (RaidDetector.shouldLog(message.getGuild())) {
+                    LogDispatcher.send(message.getGuild(), new EmbedBuilder()
+                            .setTitle("Profanity removed")
+                            .setDescription("**Sender:** " + message.getAuthor().getAsMention() + "\n" +
+                                    "**Channel:** " + message.getChannel().getAsMention() + "\n" +
+                                    "**Filter:** `" + filterMatch + "`\n" +
+                                    "**Message:** " + message.getContentRaw())
+                            .setColor(BotColors.FAILURE.getColor())
+                            .build());
+                }
             });
         }
     }
 
     @Override
     public void onGuildMemberJoin(@NotNull GuildMemberJoinEvent event) {
-        if (checkString(event.getUser().getName()) != null) {
+        if (checkString(event.getUser().getName(), event.getGuild().getIdLong()) != null) {
             event.getMember().modifyNickname(getRandomNick()).queue();
         }
     }
@@ -196,7 +184,7 @@ public class SwearHandler extends ListenerAdapter {
             name = event.getUser().getName();
         }
 
-        if (checkString(name) != null) {
+        if (checkString(name, event.getGuild().getIdLong()) != null) {
             event.getMember().modifyNickname(getRandomNick()).queue();
         }
     }
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.raid;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.storage.GuildSettings;
+import org.rtm516.discordbot.storage.ServerSettings;
+import org.rtm516.discordbot.util.BotColors;
+import org.rtm516.discordbot.util.LogDispatcher;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches the rate of joins, messages, blocked links and filtered messages per guild
+ * and switches the guild into raid mode when any of them bursts over its threshold.
+ * <p>
+ * While raid mode is on, members caught by the link checks, the profanity filter or AutoMod are
+ * queued up and kicked or banned in batches depending on the raid-action setting, and the
+ * per-event log messages are replaced with a periodic summary. Raid mode turns itself off
+ * once no threshold has been hit for {@link #RAID_DURATION_MILLIS}.
+ */
+public class RaidDetector {
+    private static final long WINDOW_SECONDS = 10;
+    private static final int WINDOW_BUCKETS = 10;
+    private static final long RAID_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long FLUSH_SECONDS = 5;
+
+    /**
+     * Most users Discord accepts in one bulk ban
+     */
+    private static final int MAX_BULK_BAN = 200;
+
+    private static final String REASON = "Raid mode";
+
+    private static final Map<Long, GuildState> STATES = new ConcurrentHashMap<>();
+
+    /**
+     * Count an event for a guild, starting raid mode if it pushes the guild over the threshold
+     *
+     * @param guild The guild the event happened in
+     * @param signal The kind of event
+     */
+    public static void record(Guild guild, RaidSignal signal) {
+        long threshold = ServerSettings.getSettings(guild).getRaidThreshold(signal);
+        if (threshold <= 0) {
+            return;
+        }
+
+        GuildState state = STATES.computeIfAbsent(guild.getIdLong(), id -> new GuildState());
+        SlidingWindowCounter counter = state.counters[signal.ordinal()];
+        counter.increment();
+
+        if (counter.sum() >= threshold) {
+            trigger(guild, state, signal);
+        }
+    }
+
+    /**
+     * @param guild The guild to check
+     * @return If the guild is in raid mode
+     */
+    public static boolean isRaidMode(Guild guild) {
+        GuildState state = STATES.get(guild.getIdLong());
+        return state != null && state.active;
+    }
+
+    /**
+     * Check if a per-event log message should be sent, counting it towards the next summary if not
+     *
+     * @param guild The guild the log is for
+     * @return False if the guild is in raid mode and the log should be skipped
+     */
+    public static boolean shouldLog(Guild guild) {
+        GuildState state = STATES.get(guild.getIdLong());
+        if (state == null || !state.active) {
+            return true;
+        }
+
+        state.suppressed.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Queue a member for the guild's raid action, if the guild is in raid mode and has one set
+     *
+     * @param member The member who broke the rules
+     * @return If the member was queued
+     */
+    public static boolean punish(Member member) {
+        GuildState state = STATES.get(member.getGuild().getIdLong());
+        if (state == null || !state.active) {
+            return false;
+        }
+
+        if (ServerSettings.getSettings(member.getGuild()).getRaidAction() == RaidAction.NONE) {
+            return false;
+        }
+
+        // Never act on staff
+        if (member.getUser().isBot() || member.hasPermission(Permission.MESSAGE_MANAGE)) {
+            return false;
+        }
+
+        state.offenders.add(member.getIdLong());
+        return true;
+    }
+
+    private static void trigger(Guild guild, GuildState state, RaidSignal signal) {
+        synchronized (state) {
+            // Extended under the lock so a flush can't end raid mode between this and the active check
+            state.raidUntil = System.currentTimeMillis() + RAID_DURATION_MILLIS;
+            if (state.active) {
+                return;
+            }
+            state.active = true;
+            state.flushTask = DiscordBot.getGeneralThreadPool().scheduleAtFixedRate(() -> flush(guild.getIdLong(), state), FLUSH_SECONDS, FLUSH_SECONDS, TimeUnit.SECONDS);
+        }
+
+        DiscordBot.LOGGER.warn("Raid mode enabled in " + guild.getName() + " (" + guild.getId() + ") by " + signal.getKey());
+
+        LogDispatcher.send(guild, new EmbedBuilder()
+                .setTitle("Raid mode enabled")
+                .setDescription("Too many " + signal.getKey() + " in the last " + WINDOW_SECONDS + " seconds.\n" +
+                        "Per-event logs are paused and will be summarised until things calm down.")
+                .addField("Action", ServerSettings.getSettings(guild).getRaidAction().name().toLowerCase(Locale.ROOT), false)
+                .setTimestamp(Instant.now())
+                .setColor(BotColors.FAILURE.getColor())
+                .build());
+    }
+
+    /**
+     * Act on the queued members and post a summary, turning raid mode off if it has run its course
+     */
+    private static void flush(long guildID, GuildState state) {
+        try {
+            Guild guild = DiscordBot.getJDA().getGuildById(guildID);
+            if (guild == null) {
+                end(state);
+                STATES.remove(guildID, state);
+                return;
+            }
+
+            List<UserSnowflake> users = new ArrayList<>();
+            for (Iterator<Long> iterator = state.offenders.iterator(); iterator.hasNext(); ) {
+                users.add(UserSnowflake.fromId(iterator.next()));
+                iterator.remove();
+            }
+
+            GuildSettings settings = ServerSettings.getSettings(guild);
+            act(guild, state, settings.getRaidAction(), users);
+
+            // Actions complete asynchronously so this only counts the ones that have finished since the last flush
+            int actioned = state.actioned.getAndSet(0);
+            int suppressed = state.suppressed.getAndSet(0);
+
+            boolean ended;
+            synchronized (state) {
+                ended = System.currentTimeMillis() > state.raidUntil;
+                if (ended) {
+                    end(state);
+                }
+            }
+
+            if (actioned == 0 && suppressed == 0 && !ended) {
+                return;
+            }
+
+            EmbedBuilder summary = new EmbedBuilder()
+                    .setTitle(ended ? "Raid mode ended" : "Raid mode summary")
+                    .setTimestamp(Instant.now())
+                    .setColor(ended ? BotColors.SUCCESS.getColor() : BotColors.WARNING.getColor());
+            if (actioned > 0) {
+                summary.addField(settings.getRaidAction() == RaidAction.BAN ? "Banned" : "Kicked", String.valueOf(actioned), true);
+            }
+            if (suppressed > 0) {
+                summary.addField("Logs skipped", String.valueOf(suppressed), true);
+            }
+
+            LogDispatcher.send(guild, summary.build());
+        } catch (Exception e) {
+            // Don't let the scheduled task die
+            DiscordBot.LOGGER.error("Failed to flush raid mode for " + guildID, e);
+        }
+    }
+
+    /**
+     * Kick or ban a batch of users, counting the ones that succeed towards the next summary
+     */
+    private static void act(Guild guild, GuildState state, RaidAction action, List<UserSnowflake> users) {
+        if (users.isEmpty() || action == RaidAction.NONE) {
+            return;
+        }
+
+        try {
+            if (action == RaidAction.BAN) {
+                for (int i = 0; i < users.size(); i += MAX_BULK_BAN) {
+                    guild.ban(users.subList(i, Math.min(i + MAX_BULK_BAN, users.size())), Duration.ofHours(1)).reason(REASON).queue(
+                            response -> state.actioned.addAndGet(response.getBannedUsers().size()),
+                            throwable -> DiscordBot.LOGGER.warn("Failed to ban raiders in " + guild.getId() + ": " + throwable.getMessage()));
+                }
+            } else {
+                // There is no bulk kick, JDA's rate limiter spaces these out
+                for (UserSnowflake user : users) {
+                    guild.kick(user).reason(REASON).queue(
+                            unused -> state.actioned.incrementAndGet(),
+                            throwable -> DiscordBot.LOGGER.warn("Failed to kick raider " + user.getId() + " in " + guild.getId() + ": " + throwable.getMessage()));
+                }
+            }
+        } catch (PermissionException e) {
+            DiscordBot.LOGGER.warn("Unable to " + action.name().toLowerCase(Locale.ROOT) + " raiders in " + guild.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private static void end(GuildState state) {
+        synchronized (state) {
+            state.active = false;
+            if (state.flushTask != null) {
+                state.flushTask.cancel(false);
+                state.flushTask = null;
+            }
+        }
+    }
+
+    private static class GuildState {
+        private final SlidingWindowCounter[] counters = new SlidingWindowCounter[RaidSignal.values().length];
+        private final Set<Long> offenders = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger suppressed = new AtomicInteger();
+        private final AtomicInteger actioned = new AtomicInteger();
+
+        private volatile boolean active;
+        private volatile long raidUntil;
+        private ScheduledFuture<?> flushTask;
+
+        private GuildState() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new SlidingWindowCounter(WINDOW_SECONDS, TimeUnit.SECONDS, WINDOW_BUCKETS);
+            }
+        }
+    }
+}
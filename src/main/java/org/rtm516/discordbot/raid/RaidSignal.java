@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.raid;
+
+/**
+ * Events counted by {@link RaidDetector}, each with its own threshold
+ */
+public enum RaidSignal {
+    JOIN("joins", 10),
+    MESSAGE("messages", 0),
+    LINK_HIT("links", 5),
+    FILTER_HIT("filter", 10);
+
+    private final String key;
+    private final int defaultThreshold;
+
+    RaidSignal(String key, int defaultThreshold) {
+        this.key = key;
+        this.defaultThreshold = defaultThreshold;
+    }
+
+    /**
+     * @return The name used for this signal in the raid-thresholds setting
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return How many of these events in the window start raid mode if the guild has set raid thresholds
+     * but not this one, 0 if the signal stays off unless set explicitly
+     */
+    public int getDefaultThreshold() {
+        return defaultThreshold;
+    }
+}
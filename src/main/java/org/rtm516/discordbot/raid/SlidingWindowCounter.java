@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.raid;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock free count of events over a sliding window, split into a ring of time buckets.
+ * Each bucket is a {@link LongAdder} so busy guilds don't contend on a single counter,
+ * and a bucket is reset by whichever thread first records into it after it has gone stale.
+ * <p>
+ * Counts are approximate at bucket boundaries: an event racing with a bucket reset can be lost,
+ * which is fine for spotting bursts.
+ */
+public class SlidingWindowCounter {
+    private final LongAdder[] buckets;
+    private final AtomicLongArray epochs;
+    private final long bucketMillis;
+    private final LongSupplier clock;
+
+    /**
+     * @param window Length of the window
+     * @param unit Unit of the window
+     * @param bucketCount Number of buckets to split the window into, more gives a smoother window
+     */
+    public SlidingWindowCounter(long window, TimeUnit unit, int bucketCount) {
+        this(unit.toMillis(window), bucketCount, System::currentTimeMillis);
+    }
+
+    SlidingWindowCounter(long windowMillis, int bucketCount, LongSupplier clock) {
+        this.buckets = new LongAdder[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.epochs = new AtomicLongArray(bucketCount);
+        this.bucketMillis = Math.max(windowMillis / bucketCount, 1);
+        this.clock = clock;
+    }
+
+    /**
+     * Count an event now
+     */
+    public void increment() {
+        long epoch = clock.getAsLong() / bucketMillis;
+        int index = (int) (epoch % buckets.length);
+
+        long current = epochs.get(index);
+        if (current != epoch && epochs.compareAndSet(index, current, epoch)) {
+            buckets[index].reset();
+        }
+
+        buckets[index].increment();
+    }
+
+    /**
+     * @return The number of events in the window
+     */
+    public long sum() {
+        long epoch = clock.getAsLong() / bucketMillis;
+
+        long sum = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            // Only count buckets that belong to the current window
+            if (epoch - epochs.get(i) < buckets.length) {
+                sum += buckets[i].sum();
+            }
+        }
+        return sum;
+    }
+}
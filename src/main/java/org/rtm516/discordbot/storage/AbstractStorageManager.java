@@ -28,7 +28,9 @@ package org.rtm516.discordbot.storage;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public abstract class AbstractStorageManager {
 
@@ -60,6 +62,66 @@ public abstract class AbstractStorageManager {
      */
     public abstract void setServerPreference(long serverID, String preference, String value);
 
+    /**
+     * Set multiple preferences in the database at once
+     *
+     * @param serverID Guild ID to set the preferences for
+     * @param preferences Map of preference keys to the values to set them to
+     */
+    public void setServerPreferences(long serverID, Map<String, String> preferences) {
+        for (Map.Entry<String, String> preference : preferences.entrySet()) {
+            setServerPreference(serverID, preference.getKey(), preference.getValue());
+        }
+    }
+
+    /**
+     * Get the items of a list preference from the database
+     *
+     * @param serverID Guild ID to get the items for
+     * @param preference Key of the list preference
+     * @return The items in the order they were added
+     */
+    public abstract List<String> getPreferenceItems(long serverID, String preference);
+
+    /**
+     * Check if a list preference contains an item
+     *
+     * @param serverID Guild ID to check the item for
+     * @param preference Key of the list preference
+     * @param item Item to look for
+     * @return If the item is in the list
+     */
+    public abstract boolean hasPreferenceItem(long serverID, String preference, String item);
+
+    /**
+     * Add an item to a list preference in the database
+     *
+     * @param serverID Guild ID to add the item for
+     * @param preference Key of the list preference
+     * @param item Item to add
+     * @return If the item was added, false if it was already in the list
+     */
+    public abstract boolean addPreferenceItem(long serverID, String preference, String item);
+
+    /**
+     * Remove an item from a list preference in the database
+     *
+     * @param serverID Guild ID to remove the item for
+     * @param preference Key of the list preference
+     * @param item Item to remove
+     * @return If the item was removed, false if it wasn't in the list
+     */
+    public abstract boolean removePreferenceItem(long serverID, String preference, String item);
+
+    /**
+     * Replace all the items of a list preference in the database
+     *
+     * @param serverID Guild ID to set the items for
+     * @param preference Key of the list preference
+     * @param items Items to set the list to
+     */
+    public abstract void setPreferenceItems(long serverID, String preference, List<String> items);
+
     /**
      * Store a persistent role in the database
      *
@@ -68,6 +130,18 @@ public abstract class AbstractStorageManager {
      */
     public abstract void addPersistentRole(Member member, Role role);
 
+    /**
+     * Store multiple persistent roles in the database at once
+     *
+     * @param member {@link Member} to store the roles for
+     * @param roles {@link Role}s to store for the {@link Member}
+     */
+    public void addPersistentRoles(Member member, Collection<Role> roles) {
+        for (Role role : roles) {
+            addPersistentRole(member, role);
+        }
+    }
+
     /**
      * Remove a persistent role from the database
      *
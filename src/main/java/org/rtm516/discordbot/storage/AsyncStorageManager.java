@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.rtm516.discordbot.DiscordBot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking facade over an {@link AbstractStorageManager}.
+ * Every call runs on a dedicated bounded thread pool so JDA event threads can chain on the result instead of waiting on the database.
+ * If the queue fills up the call fails straight away, running it on the caller would block the event thread it was meant to keep free.
+ */
+public class AsyncStorageManager {
+    private static final int QUEUE_SIZE = 1000;
+
+    private final AbstractStorageManager storageManager;
+    private final ExecutorService executor;
+
+    public AsyncStorageManager(AbstractStorageManager storageManager, int threads) {
+        this.storageManager = storageManager;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "Storage worker " + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Run any storage work on the storage threads, useful for doing several calls in a row
+     *
+     * @param supplier The work to run
+     * @return A future completed with the result of the work
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    private CompletableFuture<Void> run(Runnable runnable) {
+        try {
+            return CompletableFuture.runAsync(runnable, executor);
+        } catch (RejectedExecutionException e) {
+            return rejected(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> rejected(RejectedExecutionException e) {
+        // Logged here as plenty of writes are fire and forget
+        DiscordBot.LOGGER.warn("Storage queue is full, dropping a storage call");
+        return CompletableFuture.failedFuture(e);
+    }
+
+    /**
+     * @see AbstractStorageManager#getServerPreference(long, String)
+     */
+    public CompletableFuture<String> getServerPreference(long serverID, String preference) {
+        return supply(() -> storageManager.getServerPreference(serverID, preference));
+    }
+
+    /**
+     * @see AbstractStorageManager#setServerPreference(long, String, String)
+     */
+    public CompletableFuture<Void> setServerPreference(long serverID, String preference, String value) {
+        return run(() -> storageManager.setServerPreference(serverID, preference, value));
+    }
+
+    /**
+     * @see AbstractStorageManager#setServerPreferences(long, Map)
+     */
+    public CompletableFuture<Void> setServerPreferences(long serverID, Map<String, String> preferences) {
+        return run(() -> storageManager.setServerPreferences(serverID, preferences));
+    }
+
+    /**
+     * @see AbstractStorageManager#getPreferenceItems(long, String)
+     */
+    public CompletableFuture<List<String>> getPreferenceItems(long serverID, String preference) {
+        return supply(() -> storageManager.getPreferenceItems(serverID, preference));
+    }
+
+    /**
+     * @see AbstractStorageManager#addPreferenceItem(long, String, String)
+     */
+    public CompletableFuture<Boolean> addPreferenceItem(long serverID, String preference, String item) {
+        return supply(() -> storageManager.addPreferenceItem(serverID, preference, item));
+    }
+
+    /**
+     * @see AbstractStorageManager#removePreferenceItem(long, String, String)
+     */
+    public CompletableFuture<Boolean> removePreferenceItem(long serverID, String preference, String item) {
+        return supply(() -> storageManager.removePreferenceItem(serverID, preference, item));
+    }
+
+    /**
+     * @see AbstractStorageManager#setPreferenceItems(long, String, List)
+     */
+    public CompletableFuture<Void> setPreferenceItems(long serverID, String preference, List<String> items) {
+        return run(() -> storageManager.setPreferenceItems(serverID, preference, items));
+    }
+
+    /**
+     * @see AbstractStorageManager#addPersistentRole(Member, Role)
+     */
+    public CompletableFuture<Void> addPersistentRole(Member member, Role role) {
+        return run(() -> storageManager.addPersistentRole(member, role));
+    }
+
+    /**
+     * @see AbstractStorageManager#addPersistentRoles(Member, Collection)
+     */
+    public CompletableFuture<Void> addPersistentRoles(Member member, Collection<Role> roles) {
+        return run(() -> storageManager.addPersistentRoles(member, roles));
+    }
+
+    /**
+     * @see AbstractStorageManager#removePersistentRole(Member, Role)
+     */
+    public CompletableFuture<Void> removePersistentRole(Member member, Role role) {
+        return run(() -> storageManager.removePersistentRole(member, role));
+    }
+
+    /**
+     * @see AbstractStorageManager#getPersistentRoles(Member)
+     */
+    public CompletableFuture<List<Role>> getPersistentRoles(Member member) {
+        return supply(() -> storageManager.getPersistentRoles(member));
+    }
+
+    /**
+     * @see AbstractStorageManager#getGithubUsername(long)
+     */
+    public CompletableFuture<String> getGithubUsername(long user) {
+        return supply(() -> storageManager.getGithubUsername(user));
+    }
+
+    /**
+     * @see AbstractStorageManager#getDiscordId(String)
+     */
+    public CompletableFuture<Long> getDiscordId(String username) {
+        return supply(() -> storageManager.getDiscordId(username));
+    }
+
+    /**
+     * @see AbstractStorageManager#setGithubUsername(long, String)
+     */
+    public CompletableFuture<Void> setGithubUsername(long user, String username) {
+        return run(() -> storageManager.setGithubUsername(user, username));
+    }
+
+    /**
+     * Stop accepting new work and wait a short time for queued work to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) { }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-through cache that sits in front of another {@link AbstractStorageManager}
+ * and keeps server preferences in memory so the listeners don't hit the database on every message
+ */
+public class CachedStorageManager extends AbstractStorageManager {
+
+    private final AbstractStorageManager storageManager;
+
+    /**
+     * Guild ID -> (preference key -> value), empty values are remembered so missing keys don't hit the database again
+     */
+    private final Map<Long, Map<String, Optional<String>>> preferences = new ConcurrentHashMap<>();
+
+    /**
+     * Guild ID -> (list preference key -> items in insertion order)
+     */
+    private final Map<Long, Map<String, Set<String>>> preferenceItems = new ConcurrentHashMap<>();
+
+    public CachedStorageManager(AbstractStorageManager storageManager) {
+        this.storageManager = storageManager;
+    }
+
+    /**
+     * @return The storage manager that is being cached
+     */
+    public AbstractStorageManager getStorageManager() {
+        return storageManager;
+    }
+
+    @Override
+    public void setupStorage() throws Exception {
+        storageManager.setupStorage();
+    }
+
+    @Override
+    public void closeStorage() {
+        storageManager.closeStorage();
+        preferences.clear();
+        preferenceItems.clear();
+    }
+
+    @Override
+    public String getServerPreference(long serverID, String preference) {
+        return getServerPreferences(serverID)
+                .computeIfAbsent(preference, key -> Optional.ofNullable(storageManager.getServerPreference(serverID, key)))
+                .orElse(null);
+    }
+
+    @Override
+    public void setServerPreference(long serverID, String preference, String value) {
+        storageManager.setServerPreference(serverID, preference, value);
+        getServerPreferences(serverID).put(preference, Optional.ofNullable(value));
+        ServerSettings.invalidate(serverID);
+    }
+
+    @Override
+    public void setServerPreferences(long serverID, Map<String, String> preferences) {
+        storageManager.setServerPreferences(serverID, preferences);
+
+        Map<String, Optional<String>> cached = getServerPreferences(serverID);
+        for (Map.Entry<String, String> preference : preferences.entrySet()) {
+            cached.put(preference.getKey(), Optional.ofNullable(preference.getValue()));
+        }
+        ServerSettings.invalidate(serverID);
+    }
+
+    /**
+     * Drop any cached preferences for a guild so they are read from the database again
+     *
+     * @param serverID Guild ID to invalidate
+     */
+    public void invalidate(long serverID) {
+        preferences.remove(serverID);
+        preferenceItems.remove(serverID);
+        ServerSettings.invalidate(serverID, null);
+    }
+
+    private Map<String, Optional<String>> getServerPreferences(long serverID) {
+        return preferences.computeIfAbsent(serverID, id -> new ConcurrentHashMap<>());
+    }
+
+    @Override
+    public List<String> getPreferenceItems(long serverID, String preference) {
+        return List.copyOf(getItems(serverID, preference));
+    }
+
+    @Override
+    public boolean hasPreferenceItem(long serverID, String preference, String item) {
+        return getItems(serverID, preference).contains(item);
+    }
+
+    @Override
+    public boolean addPreferenceItem(long serverID, String preference, String item) {
+        boolean added = storageManager.addPreferenceItem(serverID, preference, item);
+        if (added) {
+            invalidateItems(serverID, preference);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removePreferenceItem(long serverID, String preference, String item) {
+        boolean removed = storageManager.removePreferenceItem(serverID, preference, item);
+        if (removed) {
+            invalidateItems(serverID, preference);
+        }
+        return removed;
+    }
+
+    @Override
+    public void setPreferenceItems(long serverID, String preference, List<String> items) {
+        storageManager.setPreferenceItems(serverID, preference, items);
+        invalidateItems(serverID, preference);
+    }
+
+    private Set<String> getItems(long serverID, String preference) {
+        return preferenceItems.computeIfAbsent(serverID, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(preference, key -> Collections.unmodifiableSet(new LinkedHashSet<>(storageManager.getPreferenceItems(serverID, key))));
+    }
+
+    private void invalidateItems(long serverID, String preference) {
+        Map<String, Set<String>> cached = preferenceItems.get(serverID);
+        if (cached != null) {
+            cached.remove(preference);
+        }
+        ServerSettings.invalidate(serverID, preference);
+    }
+
+    @Override
+    public void addPersistentRole(Member member, Role role) {
+        storageManager.addPersistentRole(member, role);
+    }
+
+    @Override
+    public void addPersistentRoles(Member member, Collection<Role> roles) {
+        storageManager.addPersistentRoles(member, roles);
+    }
+
+    @Override
+    public void removePersistentRole(Member member, Role role) {
+        storageManager.removePersistentRole(member, role);
+    }
+
+    @Override
+    public List<Role> getPersistentRoles(Member member) {
+        return storageManager.getPersistentRoles(member);
+    }
+
+    @Override
+    public String getGithubUsername(long user) {
+        return storageManager.getGithubUsername(user);
+    }
+
+    @Override
+    public long getDiscordId(String username) {
+        return storageManager.getDiscordId(username);
+    }
+
+    @Override
+    public void setGithubUsername(long user, String username) {
+        storageManager.setGithubUsername(user, username);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import org.rtm516.discordbot.DiscordBot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small bounded pool of {@link CachedConnection}s.
+ * Connections are created lazily, handed out to one thread at a time and checked in the background
+ * so the request path never has to validate or reconnect inline.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final long BORROW_TIMEOUT_SECONDS = 10;
+    private static final long VALIDATION_INTERVAL_SECONDS = 30;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<CachedConnection> idle = new LinkedBlockingDeque<>();
+    private final ScheduledExecutorService validator;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Create a new pool, no connections are opened until they are needed
+     *
+     * @param name Name of the pool used for the validation thread
+     * @param factory Opens new connections for the pool
+     * @param size Max number of connections open at once
+     */
+    public ConnectionPool(String name, ConnectionFactory factory, int size) {
+        this.name = name;
+        this.factory = factory;
+        this.permits = new Semaphore(Math.max(size, 1), true);
+
+        this.validator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + " validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.validator.scheduleWithFixedDelay(this::validateIdle, VALIDATION_INTERVAL_SECONDS, VALIDATION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Take a connection from the pool, opening a new one if none are idle.
+     * It must be given back with {@link #release(CachedConnection)} or {@link #discard(CachedConnection)}.
+     *
+     * @return A connection only usable by the calling thread
+     * @throws SQLException If no connection became free in time or a new one couldn't be opened
+     */
+    public CachedConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLTimeoutException("Timed out waiting for a connection from " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a connection from " + name, e);
+        }
+
+        CachedConnection connection = idle.pollFirst();
+        if (connection != null) {
+            return connection;
+        }
+
+        try {
+            return new CachedConnection(factory.create());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Give a healthy connection back to the pool
+     *
+     * @param connection The connection from {@link #borrow()}
+     */
+    public void release(CachedConnection connection) {
+        if (closed) {
+            connection.close();
+        } else {
+            // Most recently used first so the hot connections stay warm
+            idle.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    /**
+     * Close a broken connection instead of returning it, a new one is opened on the next borrow
+     *
+     * @param connection The connection from {@link #borrow()}
+     */
+    public void discard(CachedConnection connection) {
+        connection.close();
+        permits.release();
+    }
+
+    /**
+     * Check the idle connections and drop any that are no longer valid.
+     * This also keeps them from hitting the server's idle timeout.
+     */
+    private void validateIdle() {
+        int count = idle.size();
+        for (int i = 0; i < count && !closed; i++) {
+            // Hold a permit while checking so the connection still counts towards the pool size
+            if (!permits.tryAcquire()) {
+                return;
+            }
+
+            CachedConnection connection = idle.pollLast();
+            if (connection == null) {
+                permits.release();
+                return;
+            }
+
+            if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                // Put it back at the front so the next poll from the back gets a different connection
+                idle.offerFirst(connection);
+            } else {
+                DiscordBot.LOGGER.warn("Dropping invalid database connection from " + name);
+                connection.close();
+            }
+            permits.release();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        validator.shutdownNow();
+
+        CachedConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Opens a new JDBC connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import gnu.trove.map.TObjectLongMap;
+import gnu.trove.map.hash.TObjectLongHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.links.IpPrefixTrie;
+import org.rtm516.discordbot.links.TyposquatIndex;
+import org.rtm516.discordbot.raid.RaidAction;
+import org.rtm516.discordbot.raid.RaidSignal;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the settings for a guild that the listeners need on every event.
+ * The raw preference strings are parsed once when the snapshot is built, and a new snapshot
+ * is swapped in by {@link ServerSettings} whenever a preference for the guild changes.
+ */
+public class GuildSettings {
+
+    private final long serverID;
+
+    private final TLongSet dontLog;
+    private final TLongSet dontCheckError;
+    private final TLongSet dontLevel;
+    private final boolean levelsDisabled;
+    private final TLongSet allowedInvites;
+
+    private final Set<String> bannedDomains;
+    private final TyposquatIndex checkDomains;
+    private final IpPrefixTrie bannedIPs;
+    private final Set<String> convertExtensions;
+
+    private final TObjectLongMap<String> roles;
+
+    private final boolean filterDisabled;
+
+    private final int[] raidThresholds;
+    private final RaidAction raidAction;
+
+    private GuildSettings(long serverID) {
+        this.serverID = serverID;
+
+        this.dontLog = toLongSet(ServerSettings.getList(serverID, "dont-log"));
+        this.dontCheckError = toLongSet(ServerSettings.getList(serverID, "dont-check-error"));
+
+        List<String> dontLevelList = ServerSettings.getList(serverID, "dont-level");
+        this.dontLevel = toLongSet(dontLevelList);
+        this.levelsDisabled = dontLevelList.contains("0");
+
+        this.allowedInvites = toLongSet(ServerSettings.getList(serverID, "allowed-invites"));
+
+        this.bannedDomains = Collections.unmodifiableSet(new LinkedHashSet<>(toLowerCase(ServerSettings.getList(serverID, "banned-domains"))));
+        this.checkDomains = TyposquatIndex.compile(toLowerCase(ServerSettings.getList(serverID, "check-domains")));
+        this.bannedIPs = IpPrefixTrie.compile(ServerSettings.getList(serverID, "banned-ips"));
+        this.convertExtensions = Set.copyOf(ServerSettings.getList(serverID, "convert-extensions"));
+
+        this.roles = new TObjectLongHashMap<>();
+        for (Map.Entry<String, String> role : ServerSettings.getMap(serverID, "roles").entrySet()) {
+            try {
+                this.roles.put(role.getKey().toLowerCase(Locale.ROOT), Long.parseLong(role.getValue().trim()));
+            } catch (NumberFormatException ignored) { }
+        }
+
+        String disableFilter = DiscordBot.storageManager.getServerPreference(serverID, "disable-filter");
+        this.filterDisabled = disableFilter != null && !disableFilter.isEmpty();
+
+        // Raid detection is opt-in, a guild without any thresholds set leaves every signal off
+        Map<String, String> thresholds = ServerSettings.getMap(serverID, "raid-thresholds");
+        this.raidThresholds = new int[RaidSignal.values().length];
+        for (RaidSignal signal : RaidSignal.values()) {
+            int threshold = thresholds.isEmpty() ? 0 : signal.getDefaultThreshold();
+            String value = thresholds.get(signal.getKey());
+            if (value != null) {
+                try {
+                    threshold = Integer.parseInt(value.trim());
+                } catch (NumberFormatException ignored) { }
+            }
+            this.raidThresholds[signal.ordinal()] = threshold;
+        }
+        this.raidAction = RaidAction.fromName(DiscordBot.storageManager.getServerPreference(serverID, "raid-action"));
+    }
+
+    /**
+     * Parse the settings for a guild into a new snapshot
+     *
+     * @param serverID ID of the guild to load
+     * @return The parsed settings
+     */
+    @NotNull
+    static GuildSettings load(long serverID) {
+        return new GuildSettings(serverID);
+    }
+
+    /**
+     * Parse a list of snowflakes into a set, skipping anything that isn't a valid ID
+     *
+     * @param ids The list of IDs to parse
+     * @return The set of IDs
+     */
+    private static TLongSet toLongSet(List<String> ids) {
+        TLongSet set = new TLongHashSet(Math.max(ids.size(), 1));
+        for (String id : ids) {
+            try {
+                set.add(Long.parseLong(id.trim()));
+            } catch (NumberFormatException ignored) { }
+        }
+        return set;
+    }
+
+    /**
+     * Lower case a list of domains so they can be compared with the lower case domains from messages
+     *
+     * @param domains The domains
+     * @return The lower case domains
+     */
+    private static List<String> toLowerCase(List<String> domains) {
+        return domains.stream().map(domain -> domain.trim().toLowerCase(Locale.ROOT)).toList();
+    }
+
+    public long getServerID() {
+        return serverID;
+    }
+
+    /**
+     * @param channelID The channel to check
+     * @return If the channel should be excluded from logs
+     */
+    public boolean shouldNotLog(long channelID) {
+        return dontLog.contains(channelID);
+    }
+
+    /**
+     * @param channelID The channel to check
+     * @return If the channel should be excluded from checking errors
+     */
+    public boolean shouldNotCheckError(long channelID) {
+        return dontCheckError.contains(channelID);
+    }
+
+    /**
+     * @param channelID The channel to check
+     * @return If the channel should be excluded from the level system
+     */
+    public boolean shouldDisableLevels(long channelID) {
+        return levelsDisabled || dontLevel.contains(channelID);
+    }
+
+    /**
+     * @return If levels are disabled for the whole guild
+     */
+    public boolean levelsDisabled() {
+        return levelsDisabled;
+    }
+
+    /**
+     * @param guildID The guild the invite is for
+     * @return If invites to the given guild are allowed
+     */
+    public boolean isInviteAllowed(long guildID) {
+        return allowedInvites.contains(guildID);
+    }
+
+    /**
+     * @param domain The lower case domain to check
+     * @return If the domain is banned
+     */
+    public boolean isBannedDomain(String domain) {
+        return bannedDomains.contains(domain);
+    }
+
+    /**
+     * @return The index of safe domains to check for look-alikes of
+     */
+    public TyposquatIndex getCheckDomains() {
+        return checkDomains;
+    }
+
+    /**
+     * @return The banned addresses and ranges
+     */
+    public IpPrefixTrie getBannedIPs() {
+        return bannedIPs;
+    }
+
+    /**
+     * @param extension The file extension to check
+     * @return If attachments with the extension should be converted to a paste
+     */
+    public boolean shouldConvertExtension(String extension) {
+        return convertExtensions.contains(extension);
+    }
+
+    /**
+     * Get the ID of a self assignable role
+     *
+     * @param name The name of the role, case-insensitive
+     * @return The role ID or 0 if there is no role with that name
+     */
+    public long getRole(String name) {
+        return roles.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @return If the profanity filter is disabled
+     */
+    public boolean isFilterDisabled() {
+        return filterDisabled;
+    }
+
+    /**
+     * @param signal The kind of event
+     * @return How many of the events in the raid window start raid mode, 0 or less if the signal is ignored
+     */
+    public int getRaidThreshold(RaidSignal signal) {
+        return raidThresholds[signal.ordinal()];
+    }
+
+    /**
+     * @return What to do with members caught breaking the rules during raid mode
+     */
+    public RaidAction getRaidAction() {
+        return raidAction;
+    }
+}
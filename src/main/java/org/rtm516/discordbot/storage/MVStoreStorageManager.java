@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.util.PropertiesManager;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores everything in an embedded MVStore file, for single instance deployments
+ * that don't need a database server. Lookups are served from MVStore's page cache
+ * without any SQL parsing or JDBC overhead.
+ */
+public class MVStoreStorageManager extends AbstractStorageManager {
+
+    private MVStore store;
+
+    /**
+     * "server:key" -> value
+     */
+    private MVMap<String, String> preferences;
+
+    /**
+     * "server:key:item" -> sequence number, kept sorted so all the items of a list are next to each other.
+     * The sequence number gives the order the items were added in, like the id column of the SQL backends.
+     */
+    private MVMap<String, Long> preferenceItems;
+
+    private final AtomicLong nextItemSequence = new AtomicLong();
+
+    /**
+     * "server:user:role" -> true, kept sorted so all the roles for a member are next to each other
+     */
+    private MVMap<String, Boolean> persistentRoles;
+
+    /**
+     * Discord user ID -> GitHub username
+     */
+    private MVMap<Long, String> githubLinks;
+
+    /**
+     * GitHub username -> Discord user ID
+     */
+    private MVMap<String, Long> githubUsers;
+
+    @Override
+    public void setupStorage() throws Exception {
+        store = new MVStore.Builder()
+                .fileName(PropertiesManager.getDatabase())
+                .autoCommitDelay(1000)
+                .open();
+
+        preferences = store.openMap("preferences");
+        preferenceItems = store.openMap("preference_items");
+        persistentRoles = store.openMap("persistent_roles");
+        githubLinks = store.openMap("github_links");
+        githubUsers = store.openMap("github_users");
+
+        loadItemSequence();
+
+        String importFile = PropertiesManager.getDatabaseImport();
+        if (importFile != null && !importFile.isEmpty()) {
+            if (preferences.isEmpty() && persistentRoles.isEmpty() && githubLinks.isEmpty()) {
+                importSqlite(importFile);
+            } else {
+                DiscordBot.LOGGER.warn("Not importing " + importFile + " as the store already contains data");
+            }
+        }
+
+        migrateListPreferences();
+    }
+
+    /**
+     * Find where to carry on numbering list items from
+     */
+    private void loadItemSequence() {
+        long max = -1;
+        for (Long sequence : preferenceItems.values()) {
+            max = Math.max(max, sequence);
+        }
+        nextItemSequence.set(max + 1);
+    }
+
+    /**
+     * Move list settings that are still stored as a comma separated value over to the items map
+     */
+    private void migrateListPreferences() {
+        int migrated = 0;
+        for (String key : new ArrayList<>(preferences.keySet())) {
+            int split = key.indexOf(':');
+            if (split == -1 || !ServerSettings.LIST_KEYS.contains(key.substring(split + 1))) {
+                continue;
+            }
+
+            String value = preferences.remove(key);
+            if (value == null) continue;
+
+            for (String item : value.split(",")) {
+                if (!item.isEmpty()) {
+                    if (preferenceItems.putIfAbsent(key + ":" + item, nextItemSequence.getAndIncrement()) == null) {
+                        migrated++;
+                    }
+                }
+            }
+        }
+
+        if (migrated > 0) {
+            store.commit();
+            DiscordBot.LOGGER.info("Migrated " + migrated + " list setting items to preference_items");
+        }
+    }
+
+    /**
+     * Copy all the data from an existing SQLite database into the store
+     *
+     * @param file Path to the SQLite database file
+     * @throws SQLException If the database couldn't be read
+     */
+    private void importSqlite(String file) throws SQLException {
+        DiscordBot.LOGGER.info("Importing data from SQLite database " + file);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement statement = connection.createStatement()) {
+            int count = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT `server`, `key`, `value` FROM `preferences`;")) {
+                while (rs.next()) {
+                    // MVStore can't hold nulls, a missing preference reads back the same
+                    String value = rs.getString("value");
+                    if (value != null) {
+                        preferences.put(preferenceKey(rs.getLong("server"), rs.getString("key")), value);
+                        count++;
+                    }
+                }
+            }
+            DiscordBot.LOGGER.info("Imported " + count + " preferences");
+
+            count = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT `server`, `key`, `item` FROM `preference_items` ORDER BY `id`;")) {
+                while (rs.next()) {
+                    preferenceItems.put(itemKey(rs.getLong("server"), rs.getString("key"), rs.getString("item")), nextItemSequence.getAndIncrement());
+                    count++;
+                }
+            } catch (SQLException e) {
+                // Older databases don't have the table yet, their lists are migrated from the preferences
+            }
+            DiscordBot.LOGGER.info("Imported " + count + " list setting items");
+
+            count = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT `server`, `user`, `role` FROM `persistent_roles`;")) {
+                while (rs.next()) {
+                    persistentRoles.put(roleKey(rs.getLong("server"), rs.getLong("user"), rs.getLong("role")), true);
+                    count++;
+                }
+            }
+            DiscordBot.LOGGER.info("Imported " + count + " persistent roles");
+
+            count = 0;
+            try (ResultSet rs = statement.executeQuery("SELECT `user`, `github` FROM `github_links`;")) {
+                while (rs.next()) {
+                    String github = rs.getString("github");
+                    if (github != null) {
+                        setGithubUsername(rs.getLong("user"), github);
+                        count++;
+                    }
+                }
+            }
+            DiscordBot.LOGGER.info("Imported " + count + " GitHub links");
+        }
+
+        store.commit();
+    }
+
+    @Override
+    public void closeStorage() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static String preferenceKey(long serverID, String preference) {
+        return serverID + ":" + preference;
+    }
+
+    private static String itemPrefix(long serverID, String preference) {
+        return preferenceKey(serverID, preference) + ":";
+    }
+
+    private static String itemKey(long serverID, String preference, String item) {
+        return itemPrefix(serverID, preference) + item;
+    }
+
+    private static String rolePrefix(long serverID, long userID) {
+        return serverID + ":" + userID + ":";
+    }
+
+    private static String roleKey(long serverID, long userID, long roleID) {
+        return rolePrefix(serverID, userID) + roleID;
+    }
+
+    @Override
+    public String getServerPreference(long serverID, String preference) {
+        return preferences.get(preferenceKey(serverID, preference));
+    }
+
+    @Override
+    public void setServerPreference(long serverID, String preference, String value) {
+        // MVStore can't hold nulls, removing it reads back the same as a null value would
+        if (value == null) {
+            preferences.remove(preferenceKey(serverID, preference));
+        } else {
+            preferences.put(preferenceKey(serverID, preference), value);
+        }
+    }
+
+    @Override
+    public void setServerPreferences(long serverID, Map<String, String> preferences) {
+        for (Map.Entry<String, String> preference : preferences.entrySet()) {
+            setServerPreference(serverID, preference.getKey(), preference.getValue());
+        }
+    }
+
+    @Override
+    public List<String> getPreferenceItems(long serverID, String preference) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        String prefix = itemPrefix(serverID, preference);
+
+        Iterator<String> keys = preferenceItems.keyIterator(prefix);
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+
+            Long sequence = preferenceItems.get(key);
+            if (sequence != null) {
+                entries.add(Map.entry(key.substring(prefix.length()), sequence));
+            }
+        }
+
+        // Keys are sorted by item, put them back in the order they were added
+        entries.sort(Map.Entry.comparingByValue());
+
+        List<String> items = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Long> entry : entries) {
+            items.add(entry.getKey());
+        }
+        return items;
+    }
+
+    @Override
+    public boolean hasPreferenceItem(long serverID, String preference, String item) {
+        return preferenceItems.containsKey(itemKey(serverID, preference, item));
+    }
+
+    @Override
+    public boolean addPreferenceItem(long serverID, String preference, String item) {
+        String key = itemKey(serverID, preference, item);
+        if (preferenceItems.containsKey(key)) {
+            return false;
+        }
+        return preferenceItems.putIfAbsent(key, nextItemSequence.getAndIncrement()) == null;
+    }
+
+    @Override
+    public boolean removePreferenceItem(long serverID, String preference, String item) {
+        return preferenceItems.remove(itemKey(serverID, preference, item)) != null;
+    }
+
+    @Override
+    public void setPreferenceItems(long serverID, String preference, List<String> items) {
+        for (String item : getPreferenceItems(serverID, preference)) {
+            preferenceItems.remove(itemKey(serverID, preference, item));
+        }
+        for (String item : items) {
+            preferenceItems.putIfAbsent(itemKey(serverID, preference, item), nextItemSequence.getAndIncrement());
+        }
+    }
+
+    @Override
+    public void addPersistentRole(Member member, Role role) {
+        persistentRoles.put(roleKey(member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong()), true);
+    }
+
+    @Override
+    public void removePersistentRole(Member member, Role role) {
+        persistentRoles.remove(roleKey(member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong()));
+    }
+
+    @Override
+    public List<Role> getPersistentRoles(Member member) {
+        List<Role> roles = new ArrayList<>();
+        String prefix = rolePrefix(member.getGuild().getIdLong(), member.getIdLong());
+
+        Iterator<String> keys = persistentRoles.keyIterator(prefix);
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+
+            try {
+                Role role = member.getGuild().getRoleById(Long.parseLong(key.substring(prefix.length())));
+                if (role != null) {
+                    roles.add(role);
+                }
+            } catch (NumberFormatException ignored) { }
+        }
+
+        return roles;
+    }
+
+    @Override
+    public String getGithubUsername(long user) {
+        return githubLinks.get(user);
+    }
+
+    @Override
+    public long getDiscordId(String username) {
+        Long user = githubUsers.get(username);
+        return user != null ? user : 0L;
+    }
+
+    @Override
+    public void setGithubUsername(long user, String username) {
+        String oldUsername = githubLinks.put(user, username);
+        if (oldUsername != null && !oldUsername.equals(username)) {
+            githubUsers.remove(oldUsername, user);
+        }
+        githubUsers.put(username, user);
+    }
+}
@@ -33,156 +33,404 @@ import org.rtm516.discordbot.util.PropertiesManager;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public class MySQLStorageManager extends AbstractStorageManager {
 
-    protected Connection connection;
+    protected ConnectionPool pool;
 
     @Override
     public void setupStorage() throws Exception {
-        Class.forName("com.mysql.cj.jdbc.Driver");
+        Class.forName(getDriverClass());
 
-        connection = DriverManager.getConnection("jdbc:mysql://" + PropertiesManager.getHost() + "/" + PropertiesManager.getDatabase(), PropertiesManager.getUser(), PropertiesManager.getPass());
+        if (pool != null) {
+            pool.close();
+        }
+        pool = new ConnectionPool(getClass().getSimpleName(), this::createConnection, getPoolSize());
+
+        // Only create the tables once on startup, connections opened later just reuse them
+        CachedConnection connection = pool.borrow();
+        try (Statement createTables = connection.getConnection().createStatement()) {
+            createTables(createTables);
+            migrateListPreferences(connection);
+        } finally {
+            pool.release(connection);
+        }
+    }
 
-        Statement createTables = connection.createStatement();
+    /**
+     * @return The JDBC driver class to load before connecting
+     */
+    protected String getDriverClass() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    /**
+     * @return The max number of connections to keep open
+     */
+    protected int getPoolSize() {
+        return PropertiesManager.getDatabasePoolSize();
+    }
+
+    /**
+     * Open a new connection to the database
+     *
+     * @return The new connection
+     * @throws SQLException If the connection failed
+     */
+    protected Connection createConnection() throws SQLException {
+        // rewriteBatchedStatements lets the driver send a batch as a single multi-row statement
+        return DriverManager.getConnection("jdbc:mysql://" + PropertiesManager.getHost() + "/" + PropertiesManager.getDatabase() + "?rewriteBatchedStatements=true", PropertiesManager.getUser(), PropertiesManager.getPass());
+    }
+
+    /**
+     * Create the tables if they don't exist
+     *
+     * @param createTables The statement to run the queries with
+     * @throws SQLException If any of the tables couldn't be created
+     */
+    protected void createTables(Statement createTables) throws SQLException {
         createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `preferences` (`id` INT NOT NULL AUTO_INCREMENT, `server` BIGINT NOT NULL, `key` VARCHAR(32), `value` TEXT NOT NULL, PRIMARY KEY(`id`), UNIQUE KEY `pref_constraint` (`server`,`key`));");
         createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `persistent_roles` (`id` INT NOT NULL AUTO_INCREMENT, `server` BIGINT NOT NULL, `user` BIGINT NOT NULL, `role` BIGINT NOT NULL, PRIMARY KEY(`id`), UNIQUE KEY `role_constraint` (`server`,`user`,`role`));");
-        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `github_links` (`id` INT NOT NULL AUTOINCREMENT, `user` BIGINT NOT NULL, `github` VARCHAR(32), PRIMARY KEY(`id`), UNIQUE KEY `github_constraint` (`user`,`github`));");
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `github_links` (`id` INT NOT NULL AUTO_INCREMENT, `user` BIGINT NOT NULL, `github` VARCHAR(32), PRIMARY KEY(`id`), UNIQUE KEY `github_constraint` (`user`,`github`));");
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `preference_items` (`id` INT NOT NULL AUTO_INCREMENT, `server` BIGINT NOT NULL, `key` VARCHAR(32) NOT NULL, `item` VARCHAR(255) NOT NULL, PRIMARY KEY(`id`), UNIQUE KEY `item_constraint` (`server`,`key`,`item`));");
+    }
 
-        createTables.close();
+    /**
+     * @return The query used to insert a list item, ignoring it if it already exists
+     */
+    protected String getInsertItemQuery() {
+        return "INSERT IGNORE INTO `preference_items` (`server`, `key`, `item`) VALUES (?, ?, ?);";
+    }
+
+    /**
+     * Move list settings that are still stored as a comma separated value in `preferences` over to `preference_items`
+     *
+     * @param connection The connection to run the migration on
+     * @throws SQLException If the migration failed, nothing is changed in that case
+     */
+    protected void migrateListPreferences(CachedConnection connection) throws SQLException {
+        Connection conn = connection.getConnection();
+        conn.setAutoCommit(false);
+        try {
+            int migrated = 0;
+            for (String key : ServerSettings.LIST_KEYS) {
+                PreparedStatement select = connection.prepare("SELECT `server`, `value` FROM `preferences` WHERE `key`=?;");
+                select.setString(1, key);
+
+                List<Object[]> rows = new ArrayList<>();
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        for (String item : rs.getString("value").split(",")) {
+                            if (!item.isEmpty()) {
+                                rows.add(new Object[] { rs.getLong("server"), key, item });
+                            }
+                        }
+                    }
+                }
+
+                if (rows.isEmpty()) continue;
+
+                PreparedStatement insert = connection.prepare(getInsertItemQuery());
+                for (Object[] params : rows) {
+                    setParameters(insert, params);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+
+                PreparedStatement delete = connection.prepare("DELETE FROM `preferences` WHERE `key`=?;");
+                delete.setString(1, key);
+                delete.executeUpdate();
+
+                migrated += rows.size();
+            }
+            conn.commit();
+
+            if (migrated > 0) {
+                DiscordBot.LOGGER.info("Migrated " + migrated + " list setting items to preference_items");
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
     }
 
     @Override
     public void closeStorage() {
-        try {
-            connection.close();
-        } catch (SQLException ignored) { }
+        if (pool != null) {
+            pool.close();
+        }
     }
 
-    private void checkConnection() {
+    /**
+     * Borrow a connection from the pool and run the given action with it.
+     * If the action fails and the connection is no longer valid it is dropped from the pool.
+     *
+     * @param action The action to run
+     * @param fallback The value to return if the action fails
+     * @param error The message to log if the action fails
+     * @return The value given by the action or the fallback
+     */
+    protected <T> T withConnection(ConnectionAction<T> action, T fallback, String error) {
+        CachedConnection connection;
         try {
-            if (connection.isValid(0)) return;
-        } catch (SQLException e) { }
+            connection = pool.borrow();
+        } catch (SQLException e) {
+            DiscordBot.LOGGER.error(error, e);
+            return fallback;
+        }
 
+        boolean broken = false;
         try {
-            setupStorage();
-        } catch (Exception e) {
-            DiscordBot.LOGGER.error("Failed to reconnect to MySQL database", e);
+            return action.run(connection);
+        } catch (SQLException e) {
+            DiscordBot.LOGGER.error(error, e);
+            broken = !connection.isValid(1);
+        } finally {
+            if (broken) {
+                pool.discard(connection);
+            } else {
+                pool.release(connection);
+            }
         }
+
+        return fallback;
     }
 
-    @Override
-    public String getServerPreference(long serverID, String preference) {
-        checkConnection();
-        try {
-            Statement getPreferenceValue = connection.createStatement();
-            ResultSet rs = getPreferenceValue.executeQuery("SELECT `value` FROM `preferences` WHERE `server`=" + serverID + " AND `key`='" + preference + "';");
+    /**
+     * Run an update query with the given parameters
+     *
+     * @param sql The query to run
+     * @param params The values for each parameter in the query
+     * @return The number of rows changed
+     */
+    protected int update(String sql, Object... params) {
+        return withConnection(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            setParameters(statement, params);
+            return statement.executeUpdate();
+        }, 0, "Failed to run database update");
+    }
 
-            if (rs.next()) {
-                return rs.getString("value");
+    /**
+     * Run the given action in a single transaction, rolling it back if it fails
+     *
+     * @param action The action to run
+     * @param fallback The value to return if the action fails
+     * @param error The message to log if the action fails
+     * @return The value given by the action or the fallback
+     */
+    protected <T> T transaction(ConnectionAction<T> action, T fallback, String error) {
+        return withConnection(connection -> {
+            Connection conn = connection.getConnection();
+            try {
+                conn.setAutoCommit(false);
+                T result = action.run(connection);
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) { }
+                throw e;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException ignored) { }
             }
+        }, fallback, error);
+    }
 
-            getPreferenceValue.close();
-        } catch (SQLException ignored) { }
+    /**
+     * Run an update query once for each set of parameters in a single batch
+     *
+     * @param sql The query to run
+     * @param rows The parameters for each execution of the query
+     */
+    protected void batch(String sql, Collection<Object[]> rows) {
+        if (rows.isEmpty()) return;
+
+        // Run the whole batch in one transaction so it's a single commit
+        transaction(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            for (Object[] params : rows) {
+                setParameters(statement, params);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return null;
+        }, null, "Failed to run database batch update");
+    }
 
-        return null;
+    /**
+     * Run a select query and read the results
+     *
+     * @param sql The query to run
+     * @param reader Converts the {@link ResultSet} into the returned value
+     * @param fallback The value to return if the query fails
+     * @param params The values for each parameter in the query
+     * @return The value given by the reader or the fallback
+     */
+    protected <T> T query(String sql, ResultSetReader<T> reader, T fallback, Object... params) {
+        return withConnection(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            setParameters(statement, params);
+            try (ResultSet rs = statement.executeQuery()) {
+                return reader.read(rs);
+            }
+        }, fallback, "Failed to run database query");
     }
 
-    @Override
-    public void setServerPreference(long serverID, String preference, String value) {
-        checkConnection();
-        try {
-            Statement updatePreferenceValue = connection.createStatement();
-            updatePreferenceValue.executeUpdate("INSERT INTO `preferences` (`server`, `key`, `value`) VALUES (" + serverID + ", '" + preference + "', '" + value + "') ON DUPLICATE KEY UPDATE `value`='" + value + "';");
-            updatePreferenceValue.close();
-        } catch (SQLException ignored) { }
+    protected static void setParameters(PreparedStatement statement, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
     }
 
     @Override
-    public void addPersistentRole(Member member, Role role) {
-        checkConnection();
-        try {
-            Statement addPersistentRole = connection.createStatement();
-            addPersistentRole.executeUpdate("INSERT INTO `persistent_roles` (`server`, `user`, `role`) VALUES (" + member.getGuild().getId() + ", " + member.getId() + ", " + role.getId() + ");");
-            addPersistentRole.close();
-        } catch (SQLException ignored) { }
+    public String getServerPreference(long serverID, String preference) {
+        return query("SELECT `value` FROM `preferences` WHERE `server`=? AND `key`=?;",
+                rs -> rs.next() ? rs.getString("value") : null, null, serverID, preference);
     }
 
     @Override
-    public void removePersistentRole(Member member, Role role) {
-        checkConnection();
-        try {
-            Statement removePersistentRole = connection.createStatement();
-            removePersistentRole.executeUpdate("DELETE FROM `persistent_roles` WHERE `server`=" + member.getGuild().getId() + " AND `user`=" + member.getId() + " AND `role`=" + role.getId() + ");");
-            removePersistentRole.close();
-        } catch (SQLException ignored) { }
+    public void setServerPreference(long serverID, String preference, String value) {
+        update("INSERT INTO `preferences` (`server`, `key`, `value`) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE `value`=VALUES(`value`);", serverID, preference, value);
     }
 
     @Override
-    public List<Role> getPersistentRoles(Member member) {
-        checkConnection();
-        List<Role> roles = new ArrayList<>();
-
-        try {
-            Statement getPersistentRoles = connection.createStatement();
-            ResultSet rs = getPersistentRoles.executeQuery("SELECT `role` FROM `persistent_roles` WHERE `server`=" + member.getGuild().getId() + " AND `user`=" + member.getId() + ";");
+    public void setServerPreferences(long serverID, Map<String, String> preferences) {
+        batch("INSERT INTO `preferences` (`server`, `key`, `value`) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE `value`=VALUES(`value`);", preferenceRows(serverID, preferences));
+    }
 
+    @Override
+    public List<String> getPreferenceItems(long serverID, String preference) {
+        return query("SELECT `item` FROM `preference_items` WHERE `server`=? AND `key`=? ORDER BY `id`;", rs -> {
+            List<String> items = new ArrayList<>();
             while (rs.next()) {
-                roles.add(member.getGuild().getRoleById(rs.getString("role")));
+                items.add(rs.getString("item"));
             }
+            return items;
+        }, new ArrayList<>(), serverID, preference);
+    }
 
-            getPersistentRoles.close();
-        } catch (SQLException ignored) { }
+    @Override
+    public boolean hasPreferenceItem(long serverID, String preference, String item) {
+        return query("SELECT 1 FROM `preference_items` WHERE `server`=? AND `key`=? AND `item`=? LIMIT 1;",
+                ResultSet::next, false, serverID, preference, item);
+    }
 
-        return roles;
+    @Override
+    public boolean addPreferenceItem(long serverID, String preference, String item) {
+        return update(getInsertItemQuery(), serverID, preference, item) > 0;
     }
 
     @Override
-    public String getGithubUsername(long user) {
-        checkConnection();
-        try {
-            Statement getPreferenceValue = connection.createStatement();
-            ResultSet rs = getPreferenceValue.executeQuery("SELECT `github` FROM `github_links` WHERE `user`=" + user + ";");
+    public boolean removePreferenceItem(long serverID, String preference, String item) {
+        return update("DELETE FROM `preference_items` WHERE `server`=? AND `key`=? AND `item`=?;", serverID, preference, item) > 0;
+    }
 
-            if (rs.next()) {
-                return rs.getString("github");
+    @Override
+    public void setPreferenceItems(long serverID, String preference, List<String> items) {
+        transaction(connection -> {
+            PreparedStatement delete = connection.prepare("DELETE FROM `preference_items` WHERE `server`=? AND `key`=?;");
+            setParameters(delete, new Object[] { serverID, preference });
+            delete.executeUpdate();
+
+            PreparedStatement insert = connection.prepare(getInsertItemQuery());
+            for (String item : items) {
+                setParameters(insert, new Object[] { serverID, preference, item });
+                insert.addBatch();
             }
+            insert.executeBatch();
+            return null;
+        }, null, "Failed to set list setting");
+    }
 
-            getPreferenceValue.close();
-        } catch (SQLException ignored) { }
+    @Override
+    public void addPersistentRole(Member member, Role role) {
+        update("INSERT IGNORE INTO `persistent_roles` (`server`, `user`, `role`) VALUES (?, ?, ?);", member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong());
+    }
 
-        return null;
+    @Override
+    public void addPersistentRoles(Member member, Collection<Role> roles) {
+        batch("INSERT IGNORE INTO `persistent_roles` (`server`, `user`, `role`) VALUES (?, ?, ?);", roleRows(member, roles));
     }
 
     @Override
-    public long getDiscordId(String username) {
-        checkConnection();
-        try {
-            Statement getPreferenceValue = connection.createStatement();
-            ResultSet rs = getPreferenceValue.executeQuery("SELECT `user` FROM `github_links` WHERE `github`='" + username + "';");
+    public void removePersistentRole(Member member, Role role) {
+        update("DELETE FROM `persistent_roles` WHERE `server`=? AND `user`=? AND `role`=?;", member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong());
+    }
 
-            if (rs.next()) {
-                return rs.getLong("user");
+    @Override
+    public List<Role> getPersistentRoles(Member member) {
+        return query("SELECT `role` FROM `persistent_roles` WHERE `server`=? AND `user`=?;", rs -> {
+            List<Role> roles = new ArrayList<>();
+            while (rs.next()) {
+                Role role = member.getGuild().getRoleById(rs.getLong("role"));
+                if (role != null) {
+                    roles.add(role);
+                }
             }
+            return roles;
+        }, new ArrayList<>(), member.getGuild().getIdLong(), member.getIdLong());
+    }
 
-            getPreferenceValue.close();
-        } catch (SQLException ignored) { }
+    @Override
+    public String getGithubUsername(long user) {
+        return query("SELECT `github` FROM `github_links` WHERE `user`=?;",
+                rs -> rs.next() ? rs.getString("github") : null, null, user);
+    }
 
-        return 0L;
+    @Override
+    public long getDiscordId(String username) {
+        return query("SELECT `user` FROM `github_links` WHERE `github`=?;",
+                rs -> rs.next() ? rs.getLong("user") : 0L, 0L, username);
     }
 
     @Override
     public void setGithubUsername(long user, String username) {
-        checkConnection();
-        try {
-            Statement addGithubLink = connection.createStatement();
-            addGithubLink.executeUpdate("INSERT INTO `github_links` (`user`, `github`) VALUES (" + user + ", '" + username + "') ON DUPLICATE KEY UPDATE `github`='" + username + "';");
-            addGithubLink.close();
-        } catch (SQLException ignored) { }
+        update("INSERT INTO `github_links` (`user`, `github`) VALUES (?, ?) ON DUPLICATE KEY UPDATE `github`=VALUES(`github`);", user, username);
+    }
+
+    protected static List<Object[]> preferenceRows(long serverID, Map<String, String> preferences) {
+        List<Object[]> rows = new ArrayList<>(preferences.size());
+        for (Map.Entry<String, String> preference : preferences.entrySet()) {
+            rows.add(new Object[] { serverID, preference.getKey(), preference.getValue() });
+        }
+        return rows;
+    }
+
+    protected static List<Object[]> roleRows(Member member, Collection<Role> roles) {
+        List<Object[]> rows = new ArrayList<>(roles.size());
+        for (Role role : roles) {
+            rows.add(new Object[] { member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong() });
+        }
+        return rows;
+    }
+
+    /**
+     * Runs against a pooled connection, can throw {@link SQLException} unlike {@link java.util.function.Function}
+     */
+    @FunctionalInterface
+    protected interface ConnectionAction<T> {
+        T run(CachedConnection connection) throws SQLException;
+    }
+
+    /**
+     * Reads the result of a query, can throw {@link SQLException} unlike {@link java.util.function.Function}
+     */
+    @FunctionalInterface
+    protected interface ResultSetReader<T> {
+        T read(ResultSet rs) throws SQLException;
     }
 }
@@ -34,6 +34,8 @@ import net.dv8tion.jda.api.entities.channel.middleman.GuildChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import org.apache.commons.lang3.StringUtils;
 import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.filter.GuildFilters;
+import org.rtm516.discordbot.links.LinkVerdicts;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -43,6 +45,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class gives easy methods for accessing stored data about a server
@@ -50,6 +55,78 @@ import java.util.Map;
  */
 public class ServerSettings {
 
+    /**
+     * Preferences that are stored one item per row in `preference_items` instead of as a single value
+     */
+    public static final Set<String> LIST_KEYS = Set.of(
+            "allowed-invites",
+            "banned-domains",
+            "banned-ips",
+            "check-domains",
+            "convert-extensions",
+            "dont-check-error",
+            "dont-level",
+            "dont-log",
+            GuildFilters.FILTER_WORDS_KEY
+    );
+
+    private static final Map<Long, GuildSettings> SETTINGS = new ConcurrentHashMap<>();
+
+    /**
+     * Guild ID -> resolved log channel, empty if the guild has no valid log channel
+     */
+    private static final Map<Long, Optional<TextChannel>> LOG_CHANNELS = new ConcurrentHashMap<>();
+
+    /**
+     * Get the parsed settings snapshot for a guild
+     *
+     * @param serverID ID of the guild to get the settings for
+     * @return The current {@link GuildSettings} for the guild
+     */
+    @NotNull
+    public static GuildSettings getSettings(long serverID) {
+        return SETTINGS.computeIfAbsent(serverID, GuildSettings::load);
+    }
+
+    /**
+     * Get the parsed settings snapshot for a guild
+     *
+     * @param guild The guild to get the settings for
+     * @return The current {@link GuildSettings} for the guild
+     */
+    @NotNull
+    public static GuildSettings getSettings(@NotNull Guild guild) {
+        return getSettings(guild.getIdLong());
+    }
+
+    /**
+     * Called when a preference changes so the snapshot for the guild gets rebuilt
+     *
+     * @param serverID ID of the guild that changed
+     */
+    static void invalidate(long serverID) {
+        SETTINGS.computeIfPresent(serverID, (id, old) -> GuildSettings.load(id));
+        LOG_CHANNELS.remove(serverID);
+    }
+
+    /**
+     * Called when a preference changes so anything built from it gets rebuilt
+     *
+     * @param serverID ID of the guild that changed
+     * @param key The preference that changed or null if it could be any of them
+     */
+    static void invalidate(long serverID, @Nullable String key) {
+        invalidate(serverID);
+
+        if (key == null || key.equals(GuildFilters.FILTER_WORDS_KEY)) {
+            GuildFilters.reload(serverID);
+        }
+
+        if (key == null || LinkVerdicts.KEYS.contains(key)) {
+            LinkVerdicts.invalidate(serverID);
+        }
+    }
+
     /**
      * Get a preference as a list of strings delimited by `,`
      *
@@ -59,6 +136,10 @@ public class ServerSettings {
      */
     @NotNull
     public static List<String> getList(long serverID, String key) {
+        if (isListKey(key)) {
+            return new ArrayList<>(DiscordBot.storageManager.getPreferenceItems(serverID, key));
+        }
+
         String listData = DiscordBot.storageManager.getServerPreference(serverID, key);
 
         if (listData == null) {
@@ -69,9 +150,85 @@ public class ServerSettings {
     }
 
     public static void setList(long serverID, String key, List<String> data) {
+        if (isListKey(key)) {
+            DiscordBot.storageManager.setPreferenceItems(serverID, key, data);
+            return;
+        }
+
         DiscordBot.storageManager.setServerPreference(serverID, key, StringUtils.join(data, ","));
     }
 
+    /**
+     * Check if a preference is stored as separate list items
+     *
+     * @param key The preference key to check
+     * @return If the preference is a list
+     */
+    public static boolean isListKey(String key) {
+        return LIST_KEYS.contains(key);
+    }
+
+    /**
+     * Add a single item to a list preference
+     *
+     * @param serverID ID of the guild to add the item for
+     * @param key The preference key to add to
+     * @param item The item to add
+     * @return If the item was added, false if it was already in the list
+     */
+    public static boolean addListItem(long serverID, String key, String item) {
+        if (isListKey(key)) {
+            return DiscordBot.storageManager.addPreferenceItem(serverID, key, item);
+        }
+
+        List<String> list = getList(serverID, key);
+        if (list.contains(item)) {
+            return false;
+        }
+
+        list.add(item);
+        setList(serverID, key, list);
+        return true;
+    }
+
+    /**
+     * Remove a single item from a list preference
+     *
+     * @param serverID ID of the guild to remove the item for
+     * @param key The preference key to remove from
+     * @param item The item to remove
+     * @return If the item was removed, false if it wasn't in the list
+     */
+    public static boolean removeListItem(long serverID, String key, String item) {
+        if (isListKey(key)) {
+            return DiscordBot.storageManager.removePreferenceItem(serverID, key, item);
+        }
+
+        List<String> list = getList(serverID, key);
+        if (!list.remove(item)) {
+            return false;
+        }
+
+        setList(serverID, key, list);
+        return true;
+    }
+
+    /**
+     * Check if a list preference contains an item
+     *
+     * @param serverID ID of the guild to check
+     * @param key The preference key to check
+     * @param item The item to look for
+     * @return If the item is in the list
+     */
+    public static boolean hasListItem(long serverID, String key, String item) {
+        if (isListKey(key)) {
+            return DiscordBot.storageManager.hasPreferenceItem(serverID, key, item);
+        }
+
+        return getList(serverID, key).contains(item);
+    }
+
     /**
      * Get a preference as a map of strings delimited by `,` and separated by `|`
      *
@@ -95,15 +252,45 @@ public class ServerSettings {
     }
 
     /**
-     * Get the log channel for the selected guild
+     * Get the log channel for the selected guild, this is cached until the setting changes or the channel is deleted
      *
      * @param guild ID of the guild to get the channel for
-     * @return The {@link TextChannel} for logs
-     * @throws IllegalArgumentException If the channel is null or invalid
+     * @return The {@link TextChannel} for logs or null if there isn't a valid one
      */
-    public static TextChannel getLogChannel(@NotNull Guild guild) throws IllegalArgumentException {
+    @Nullable
+    public static TextChannel getLogChannel(@NotNull Guild guild) {
+        return LOG_CHANNELS.computeIfAbsent(guild.getIdLong(), id -> Optional.ofNullable(resolveLogChannel(guild))).orElse(null);
+    }
+
+    @Nullable
+    private static TextChannel resolveLogChannel(Guild guild) {
         String channel = DiscordBot.storageManager.getServerPreference(guild.getIdLong(), "log-channel");
-        return guild.getTextChannelById(channel);
+
+        if (channel == null) {
+            return null;
+        }
+
+        try {
+            return guild.getTextChannelById(channel);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Forget the cached log channel for a guild, such as when a channel in it is deleted
+     *
+     * @param serverID ID of the guild
+     */
+    public static void invalidateLogChannel(long serverID) {
+        LOG_CHANNELS.remove(serverID);
+    }
+
+    /**
+     * Forget all the cached log channels, used when JDA recreates its session and the channel objects
+     */
+    public static void invalidateLogChannels() {
+        LOG_CHANNELS.clear();
     }
 
     /**
@@ -143,8 +330,7 @@ public class ServerSettings {
             return true;
         }
 
-        List<String> dontLog = getList(guild.getIdLong(), "dont-log");
-        return dontLog.contains(channel.getId());
+        return getSettings(guild).shouldNotLog(channel.getIdLong());
     }
 
     /**
@@ -154,12 +340,13 @@ public class ServerSettings {
      * @return If we should exclude the channel
      */
     public static boolean shouldNotCheckError(MessageChannel channel) {
+        Guild guild = getGuild(channel);
 
-        if (getGuild(channel) == null) {
+        if (guild == null) {
             return true;
         }
 
-        return getList(channel.getIdLong(), "dont-check-error").contains(channel.getId());
+        return getSettings(guild).shouldNotCheckError(channel.getIdLong());
     }
 
     /**
@@ -176,8 +363,7 @@ public class ServerSettings {
             return true;
         }
 
-        List<String> dontLevel = getList(guild.getIdLong(), "dont-level");
-        return dontLevel.size() > 0 && dontLevel.get(0).equals("0") || dontLevel.contains(channel.getId());
+        return getSettings(guild).shouldDisableLevels(channel.getIdLong());
     }
 
     /**
@@ -204,8 +390,7 @@ public class ServerSettings {
      * @return If levels are disabled
      */
     public static boolean serverLevelsDisabled(@NotNull Guild guild) {
-        List<String> dontLevel = getList(guild.getIdLong(), "dont-level");
-        return dontLevel.size() > 0 && dontLevel.get(0).equals("0");
+        return getSettings(guild).levelsDisabled();
     }
 
     /**
@@ -27,135 +27,161 @@ package org.rtm516.discordbot.storage;
 
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
+import org.rtm516.discordbot.DiscordBot;
 import org.rtm516.discordbot.util.PropertiesManager;
+import org.sqlite.SQLiteConfig;
 
+import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SqliteStorageManager extends MySQLStorageManager {
 
+    private static final long WRITE_TIMEOUT_SECONDS = 30;
+
+    private SqliteWriter writer;
+
     @Override
     public void setupStorage() throws Exception {
-        Class.forName("org.sqlite.JDBC");
-        connection = DriverManager.getConnection("jdbc:sqlite:" + PropertiesManager.getDatabase());
-
-        Statement createTables = connection.createStatement();
-        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `preferences` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `server` INTEGER NOT NULL, `key` VARCHAR(32), `value` TEXT NOT NULL, CONSTRAINT `pref_constraint` UNIQUE (`server`,`key`));");
-        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `persistent_roles` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `server` INTEGER NOT NULL, `user` INTEGER NOT NULL, `role` INTEGER NOT NULL, CONSTRAINT `role_constraint` UNIQUE (`server`,`user`,`role`));");
-        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `github_links` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `user` INTEGER NOT NULL, `github` VARCHAR(32), CONSTRAINT `github_constraint` UNIQUE (`user`,`github`));");
-        createTables.close();
+        Class.forName(getDriverClass());
+        closeStorage();
+
+        // All writes go through a single connection on its own thread
+        writer = new SqliteWriter(new CachedConnection(createWriteConnection()));
+        try (Statement createTables = writer.getConnection().getConnection().createStatement()) {
+            createTables(createTables);
+            migrateListPreferences(writer.getConnection());
+        }
+        writer.start();
+
+        // Reads use their own read-only connections, with WAL they never wait on the writer
+        pool = new ConnectionPool(getClass().getSimpleName(), this::createConnection, getPoolSize());
     }
 
     @Override
     public void closeStorage() {
-        try {
-            connection.close();
-        } catch (SQLException ignored) { }
+        if (writer != null) {
+            writer.close();
+        }
+        super.closeStorage();
     }
 
     @Override
-    public String getServerPreference(long serverID, String preference) {
-        try {
-            Statement getPreferenceValue = connection.createStatement();
-            ResultSet rs = getPreferenceValue.executeQuery("SELECT `value` FROM `preferences` WHERE `server`=" + serverID + " AND `key`='" + preference + "';");
-
-            if (rs.next()) {
-                return rs.getString("value");
-            }
-
-            getPreferenceValue.close();
-        } catch (SQLException ignored) { }
-
-        return null;
+    protected String getDriverClass() {
+        return "org.sqlite.JDBC";
     }
 
-    @Override
-    public void setServerPreference(long serverID, String preference, String value) {
-        try {
-            Statement updatePreferenceValue = connection.createStatement();
-            updatePreferenceValue.executeUpdate("INSERT OR REPLACE INTO `preferences` (`server`, `key`, `value`) VALUES ('" + serverID + "', '" + preference + "', '" + value + "');");
-            updatePreferenceValue.close();
-        } catch (SQLException ignored) { }
+    /**
+     * Open the connection used for writes, this also switches the database to WAL mode
+     *
+     * @return The new connection
+     * @throws SQLException If the connection failed
+     */
+    private Connection createWriteConnection() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // NORMAL is safe with WAL and only syncs on checkpoints
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(5000);
+        return DriverManager.getConnection("jdbc:sqlite:" + PropertiesManager.getDatabase(), config.toProperties());
     }
 
     @Override
-    public void addPersistentRole(Member member, Role role) {
-        try {
-            Statement addPersistentRole = connection.createStatement();
-            addPersistentRole.executeUpdate("INSERT OR REPLACE INTO `persistent_roles` (`server`, `user`, `role`) VALUES (" + member.getGuild().getId() + ", " + member.getId() + ", " + role.getId() + ");");
-            addPersistentRole.close();
-        } catch (SQLException ignored) { }
+    protected Connection createConnection() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(5000);
+        return DriverManager.getConnection("jdbc:sqlite:" + PropertiesManager.getDatabase(), config.toProperties());
     }
 
     @Override
-    public void removePersistentRole(Member member, Role role) {
-        try {
-            Statement removePersistentRole = connection.createStatement();
-            removePersistentRole.executeUpdate("DELETE FROM `persistent_roles` WHERE `server`=" + member.getGuild().getId() + " AND `user`=" + member.getId() + " AND `role`=" + role.getId() + ";");
-            removePersistentRole.close();
-        } catch (SQLException ignored) { }
+    protected int update(String sql, Object... params) {
+        return write(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            setParameters(statement, params);
+            return statement.executeUpdate();
+        }, 0, "Failed to run database update");
     }
 
     @Override
-    public List<Role> getPersistentRoles(Member member) {
-        List<Role> roles = new ArrayList<>();
+    protected <T> T transaction(ConnectionAction<T> action, T fallback, String error) {
+        // The writer already runs everything in a transaction
+        return write(action, fallback, error);
+    }
 
+    /**
+     * Run a write on the writer thread and wait for it to be committed
+     *
+     * @param action The write to run
+     * @param fallback The value to return if the write fails
+     * @param error The message to log if the write fails
+     * @return The value given by the action or the fallback
+     */
+    private <T> T write(ConnectionAction<T> action, T fallback, String error) {
+        CompletableFuture<T> future = writer.submit(action);
         try {
-            Statement getPersistentRoles = connection.createStatement();
-            ResultSet rs = getPersistentRoles.executeQuery("SELECT `role` FROM `persistent_roles` WHERE `server`=" + member.getGuild().getId() + " AND `user`=" + member.getId() + ";");
-
-            while (rs.next()) {
-                roles.add(member.getGuild().getRoleById(rs.getString("role")));
+            // Don't hold the calling thread forever if the writer is stuck
+            return future.get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | CancellationException e) {
+            DiscordBot.LOGGER.error(error, e.getCause() != null ? e.getCause() : e);
+        } catch (TimeoutException e) {
+            if (writer.cancel(future)) {
+                DiscordBot.LOGGER.error(error + ": timed out waiting for the SQLite writer, the write was dropped");
+            } else {
+                DiscordBot.LOGGER.warn(error + ": timed out waiting for the SQLite writer, the write is in progress and may still apply");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            DiscordBot.LOGGER.warn(error + ": interrupted waiting for the SQLite writer, the write may still apply");
+        }
 
-            getPersistentRoles.close();
-        } catch (SQLException ignored) { }
-
-        return roles;
+        return fallback;
     }
 
     @Override
-    public String getGithubUsername(long user) {
-        try {
-            Statement getGithubLink = connection.createStatement();
-            ResultSet rs = getGithubLink.executeQuery("SELECT `github` FROM `github_links` WHERE `user`=" + user + ";");
-
-            if (rs.next()) {
-                return rs.getString("github");
-            }
-
-            getGithubLink.close();
-        } catch (SQLException ignored) { }
+    protected void createTables(Statement createTables) throws SQLException {
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `preferences` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `server` INTEGER NOT NULL, `key` VARCHAR(32), `value` TEXT NOT NULL, CONSTRAINT `pref_constraint` UNIQUE (`server`,`key`));");
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `persistent_roles` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `server` INTEGER NOT NULL, `user` INTEGER NOT NULL, `role` INTEGER NOT NULL, CONSTRAINT `role_constraint` UNIQUE (`server`,`user`,`role`));");
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `github_links` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `user` INTEGER NOT NULL, `github` VARCHAR(32), CONSTRAINT `github_constraint` UNIQUE (`user`,`github`));");
+        createTables.executeUpdate("CREATE TABLE IF NOT EXISTS `preference_items` (`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT, `server` INTEGER NOT NULL, `key` VARCHAR(32) NOT NULL, `item` VARCHAR(255) NOT NULL, CONSTRAINT `item_constraint` UNIQUE (`server`,`key`,`item`));");
+    }
 
-        return null;
+    @Override
+    protected String getInsertItemQuery() {
+        return "INSERT OR IGNORE INTO `preference_items` (`server`, `key`, `item`) VALUES (?, ?, ?);";
     }
 
     @Override
-    public long getDiscordId(String username) {
-        try {
-            Statement getGithubLink = connection.createStatement();
-            ResultSet rs = getGithubLink.executeQuery("SELECT `user` FROM `github_links` WHERE `github`='" + username + "';");
+    public void setServerPreference(long serverID, String preference, String value) {
+        update("INSERT OR REPLACE INTO `preferences` (`server`, `key`, `value`) VALUES (?, ?, ?);", serverID, preference, value);
+    }
 
-            if (rs.next()) {
-                return rs.getLong("user");
-            }
+    @Override
+    public void setServerPreferences(long serverID, Map<String, String> preferences) {
+        batch("INSERT OR REPLACE INTO `preferences` (`server`, `key`, `value`) VALUES (?, ?, ?);", preferenceRows(serverID, preferences));
+    }
 
-            getGithubLink.close();
-        } catch (SQLException ignored) { }
+    @Override
+    public void addPersistentRole(Member member, Role role) {
+        update("INSERT OR REPLACE INTO `persistent_roles` (`server`, `user`, `role`) VALUES (?, ?, ?);", member.getGuild().getIdLong(), member.getIdLong(), role.getIdLong());
+    }
 
-        return 0L;
+    @Override
+    public void addPersistentRoles(Member member, Collection<Role> roles) {
+        batch("INSERT OR REPLACE INTO `persistent_roles` (`server`, `user`, `role`) VALUES (?, ?, ?);", roleRows(member, roles));
     }
 
     @Override
     public void setGithubUsername(long user, String username) {
-        try {
-            Statement addGithubLink = connection.createStatement();
-            addGithubLink.executeUpdate("INSERT OR REPLACE INTO `github_links` (`user`, `github`) VALUES (" + user + ", '" + username + "');");
-            addGithubLink.close();
-        } catch (SQLException ignored) { }
+        update("INSERT OR REPLACE INTO `github_links` (`user`, `github`) VALUES (?, ?);", user, username);
     }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.storage;
+
+import org.rtm516.discordbot.DiscordBot;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs all writes for an SQLite database on one thread with its own connection.
+ * Writes that queue up while a commit is running are grouped into the next transaction
+ * so a burst of writes only pays for a single commit.
+ */
+public class SqliteWriter {
+    private static final int MAX_GROUP_SIZE = 128;
+
+    private final CachedConnection connection;
+    private final BlockingQueue<WriteTask<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    public SqliteWriter(CachedConnection connection) {
+        this.connection = connection;
+        this.thread = new Thread(this::run, "SQLite writer");
+        this.thread.setDaemon(true);
+    }
+
+    public CachedConnection getConnection() {
+        return connection;
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    /**
+     * Queue a write to run on the writer thread
+     *
+     * @param action The write to run
+     * @return A future completed once the write has been committed
+     */
+    public <T> CompletableFuture<T> submit(MySQLStorageManager.ConnectionAction<T> action) {
+        WriteTask<T> task = new WriteTask<>(action, new CompletableFuture<>());
+        if (!running) {
+            task.future().completeExceptionally(new SQLException("SQLite writer is closed"));
+            return task.future();
+        }
+
+        queue.add(task);
+
+        // close() may have run between the check and the add, if the writer didn't pick the task up fail it here
+        if (!running && queue.remove(task)) {
+            task.future().completeExceptionally(new SQLException("SQLite writer is closed"));
+        }
+
+        return task.future();
+    }
+
+    /**
+     * Take a write back out of the queue if the writer hasn't started on it yet
+     *
+     * @param future The future returned by {@link #submit}
+     * @return If the write was removed and will never run
+     */
+    public boolean cancel(CompletableFuture<?> future) {
+        if (queue.removeIf(task -> task.future() == future)) {
+            future.cancel(false);
+            return true;
+        }
+        return false;
+    }
+
+    private void run() {
+        List<WriteTask<?>> group = new ArrayList<>(MAX_GROUP_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask<?> first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP_SIZE - 1);
+
+                runGroup(group);
+            } catch (InterruptedException e) {
+                // Only close() interrupts us, stop without waiting on the rest of the queue
+                running = false;
+                break;
+            } catch (RuntimeException e) {
+                // Never let the only writer thread die, fail whatever was left in the group instead
+                DiscordBot.LOGGER.error("Unexpected error in the SQLite writer", e);
+                for (WriteTask<?> task : group) {
+                    task.future().completeExceptionally(e);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+
+        failQueued();
+
+        // Closed here so it can never happen in the middle of a transaction
+        connection.close();
+    }
+
+    /**
+     * Fail anything that was queued after we stopped
+     */
+    private void failQueued() {
+        WriteTask<?> task;
+        while ((task = queue.poll()) != null) {
+            task.future().completeExceptionally(new SQLException("SQLite writer is closed"));
+        }
+    }
+
+    /**
+     * Run a group of writes in a single transaction, each write gets a savepoint so one failure doesn't roll back the others
+     *
+     * @param group The writes to run
+     */
+    private void runGroup(List<WriteTask<?>> group) {
+        Connection conn = connection.getConnection();
+        Object[] results = new Object[group.size()];
+        Exception[] failures = new Exception[group.size()];
+        boolean committed = false;
+
+        try {
+            conn.setAutoCommit(false);
+
+            for (int i = 0; i < group.size(); i++) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    results[i] = group.get(i).action().run(connection);
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException | RuntimeException e) {
+                    // Only this write fails, the rest of the group carries on
+                    failures[i] = e;
+                    conn.rollback(savepoint);
+                    conn.releaseSavepoint(savepoint);
+                }
+            }
+
+            conn.commit();
+            committed = true;
+        } catch (SQLException e) {
+            DiscordBot.LOGGER.error("Failed to commit SQLite writes", e);
+
+            for (WriteTask<?> task : group) {
+                task.future().completeExceptionally(e);
+            }
+            return;
+        } finally {
+            // Turning auto commit back on would commit anything left over, so roll back first
+            if (!committed) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignored) { }
+            }
+
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException ignored) { }
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            if (failures[i] != null) {
+                group.get(i).future().completeExceptionally(failures[i]);
+            } else {
+                group.get(i).complete(results[i]);
+            }
+        }
+    }
+
+    /**
+     * Stop accepting writes, finish the queued ones and close the connection
+     */
+    public void close() {
+        running = false;
+
+        // Never started so there is no thread to close the connection
+        if (thread.getState() == Thread.State.NEW) {
+            failQueued();
+            connection.close();
+            return;
+        }
+
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            if (thread.isAlive()) {
+                // Give up on the rest of the queue, the transaction in progress is still allowed to finish
+                thread.interrupt();
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        failQueued();
+    }
+
+    private record WriteTask<T>(MySQLStorageManager.ConnectionAction<T> action, CompletableFuture<T> future) {
+        @SuppressWarnings("unchecked")
+        void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
@@ -28,6 +28,7 @@ package org.rtm516.discordbot.storage;
 public enum StorageType {
     SQLITE("sqlite", SqliteStorageManager.class),
     MYSQL("mysql", MySQLStorageManager.class),
+    MVSTORE("mvstore", MVStoreStorageManager.class),
     UNKNOWN("unknown", AbstractStorageManager.class);
 
     private final String name;
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+/**
+ * The bigram multiset of one string, precomputed so it can be compared against many others
+ * with the same result as {@link DicesCoefficient#diceCoefficientOptimized(String, String)}.
+ * <p>
+ * The bigrams are kept in a small open addressing table of bigram to count. Scoring copies the counts
+ * into a thread local buffer and consumes them while walking the other string, so no arrays are
+ * allocated or sorted per comparison, and {@link #isAbove(CharSequence, double)} stops as soon as
+ * the remaining bigrams could no longer lift the score over the threshold.
+ */
+public class BigramProfile {
+    private static final ThreadLocal<int[]> SCRATCH = ThreadLocal.withInitial(() -> new int[64]);
+
+    private final boolean ignoreCase;
+    private final int bigramCount;
+
+    private final int[] keys;
+    private final int[] counts;
+    private final int mask;
+
+    private BigramProfile(String text, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.bigramCount = Math.max(text.length() - 1, 0);
+
+        int capacity = Integer.highestOneBit(Math.max(bigramCount, 1) * 2 + 1) << 1;
+        this.keys = new int[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < bigramCount; i++) {
+            int bigram = bigram(text, i);
+            int slot = hash(bigram) & mask;
+            while (counts[slot] != 0 && keys[slot] != bigram) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = bigram;
+            counts[slot]++;
+        }
+    }
+
+    /**
+     * Build the profile for a string
+     *
+     * @param text The string to profile
+     * @return The profile
+     */
+    public static BigramProfile of(String text) {
+        return new BigramProfile(text, false);
+    }
+
+    /**
+     * Build the profile for a string, comparing characters case-insensitively
+     * so candidates don't need lower casing first
+     *
+     * @param text The string to profile
+     * @return The profile
+     */
+    public static BigramProfile ofIgnoreCase(String text) {
+        return new BigramProfile(text, true);
+    }
+
+    private static int hash(int bigram) {
+        int hash = bigram * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private char charAt(CharSequence text, int index) {
+        char c = text.charAt(index);
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    private int bigram(CharSequence text, int index) {
+        return charAt(text, index) << 16 | charAt(text, index + 1);
+    }
+
+    private int find(int bigram) {
+        int slot = hash(bigram) & mask;
+        while (counts[slot] != 0) {
+            if (keys[slot] == bigram) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of bigrams in the profiled string
+     */
+    public int size() {
+        return bigramCount;
+    }
+
+    /**
+     * Get Dice's coefficient between the profiled string and another
+     *
+     * @param candidate The string to compare with
+     * @return The coefficient, 0 if either string is shorter than 2 characters
+     */
+    public double score(CharSequence candidate) {
+        return compare(candidate, -1);
+    }
+
+    /**
+     * Check if Dice's coefficient between the profiled string and another is over a threshold,
+     * giving up early once it can't be
+     *
+     * @param candidate The string to compare with
+     * @param threshold The score that has to be exceeded
+     * @return If the coefficient is greater than the threshold
+     */
+    public boolean isAbove(CharSequence candidate, double threshold) {
+        return compare(candidate, threshold) > threshold;
+    }
+
+    /**
+     * @param threshold The score to beat, or negative to always compute the full score
+     * @return The coefficient, or 0 if the threshold became unreachable
+     */
+    private double compare(CharSequence candidate, double threshold) {
+        int m = candidate.length() - 1;
+        if (bigramCount == 0 || m < 1) {
+            return 0;
+        }
+
+        int total = bigramCount + m;
+
+        // Even if every bigram of the shorter string matched the threshold couldn't be reached
+        if (threshold >= 0 && (double) (2 * Math.min(bigramCount, m)) / total <= threshold) {
+            return 0;
+        }
+
+        int[] remaining = SCRATCH.get();
+        if (remaining.length < counts.length) {
+            remaining = new int[Math.max(counts.length, remaining.length * 2)];
+            SCRATCH.set(remaining);
+        }
+        System.arraycopy(counts, 0, remaining, 0, counts.length);
+
+        int shared = 0;
+        for (int i = 0; i < m; i++) {
+            int slot = find(bigram(candidate, i));
+            if (slot != -1 && remaining[slot] > 0) {
+                remaining[slot]--;
+                shared++;
+            } else if (threshold >= 0 && (double) (2 * (shared + m - i - 1)) / total <= threshold) {
+                // Matching every bigram left still wouldn't be enough
+                return 0;
+            }
+        }
+
+        return (double) (2 * shared) / total;
+    }
+}
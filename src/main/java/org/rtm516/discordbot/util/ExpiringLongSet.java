@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A fixed size, lock-free set of longs where every entry expires a set time after it was added.
+ *
+ * <p>Entries live in an open addressing table of primitive longs so lookups don't box or allocate.
+ * Slots are never emptied again, removed and expired entries are marked by their expiry time
+ * and get reused by later adds, so probe chains stay intact without any locking.
+ * If the table is full of live entries the one closest to expiring is replaced.
+ *
+ * <p>0 is used to mark empty slots so it can't be stored, this is fine for Discord snowflakes.
+ */
+public class ExpiringLongSet {
+
+    private static final long REMOVED = 0L;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray expiries;
+    private final int mask;
+    private final int shift;
+    private final long ttl;
+    private final LongSupplier clock;
+
+    /**
+     * The longest probe any add has needed, lookups never have to look further than this
+     */
+    private final AtomicInteger maxProbe = new AtomicInteger();
+
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param capacity The maximum number of live entries, rounded up to a power of 2
+     * @param ttl How long entries stay in the set
+     * @param unit The unit of the ttl
+     */
+    public ExpiringLongSet(int capacity, long ttl, TimeUnit unit) {
+        this(capacity, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    ExpiringLongSet(int capacity, long ttlNanos, LongSupplier nanoClock) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.keys = new AtomicLongArray(size);
+        this.expiries = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(size);
+        this.ttl = ttlNanos;
+
+        // Offset the clock so it is always positive and never collides with REMOVED
+        long origin = nanoClock.getAsLong() - 1;
+        this.clock = () -> nanoClock.getAsLong() - origin;
+    }
+
+    private int home(long value) {
+        return (int) ((value * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Add a value to the set, or push back its expiry if it is already in it
+     *
+     * @param value The value to add, must not be 0
+     */
+    public void add(long value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("0 can't be stored in an ExpiringLongSet");
+        }
+
+        long now = clock.getAsLong();
+        long expiry = now + ttl;
+        int start = home(value);
+
+        int oldestSlot = start;
+        long oldestExpiry = Long.MAX_VALUE;
+
+        for (int probe = 0; probe <= mask; probe++) {
+            int slot = (start + probe) & mask;
+            long key = keys.get(slot);
+
+            if (key == value) {
+                expiries.set(slot, expiry);
+                updateMaxProbe(probe);
+                return;
+            }
+
+            long slotExpiry = expiries.get(slot);
+            if ((key == 0 || slotExpiry <= now) && keys.compareAndSet(slot, key, value)) {
+                expiries.set(slot, expiry);
+                if (key != 0 && slotExpiry != REMOVED) {
+                    expired.increment();
+                }
+                updateMaxProbe(probe);
+                return;
+            }
+
+            if (slotExpiry < oldestExpiry) {
+                oldestExpiry = slotExpiry;
+                oldestSlot = slot;
+            }
+        }
+
+        // Everything is live, replace whatever expires first
+        keys.set(oldestSlot, value);
+        expiries.set(oldestSlot, expiry);
+        evicted.increment();
+        updateMaxProbe(mask);
+    }
+
+    private void updateMaxProbe(int probe) {
+        int current;
+        while (probe > (current = maxProbe.get()) && !maxProbe.compareAndSet(current, probe)) {
+            // Retry until we either set it or someone else set a longer one
+        }
+    }
+
+    /**
+     * Check if a value is in the set and hasn't expired
+     *
+     * @param value The value to look for
+     * @return If the value is in the set
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return false;
+        }
+
+        long now = clock.getAsLong();
+        int start = home(value);
+        int limit = maxProbe.get();
+
+        for (int probe = 0; probe <= limit; probe++) {
+            int slot = (start + probe) & mask;
+            long key = keys.get(slot);
+
+            if (key == 0) {
+                return false;
+            }
+
+            if (key == value && expiries.get(slot) > now) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Remove a value from the set before it expires
+     *
+     * @param value The value to remove
+     * @return If the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            return false;
+        }
+
+        long now = clock.getAsLong();
+        int start = home(value);
+        int limit = maxProbe.get();
+        boolean removed = false;
+
+        // Keep going after a hit, a racing add could have put the value in two slots
+        for (int probe = 0; probe <= limit; probe++) {
+            int slot = (start + probe) & mask;
+            long key = keys.get(slot);
+
+            if (key == 0) {
+                break;
+            }
+
+            if (key != value) {
+                continue;
+            }
+
+            // The slot may have expired and been given to another value since the key was read, only clear the
+            // expiry if it still belongs to this value. Writers set the key before the expiry, so a swap that lands
+            // in between is overwritten by the new owner's expiry.
+            long expiry = expiries.get(slot);
+            if (expiry > now && keys.get(slot) == value && expiries.compareAndSet(slot, expiry, REMOVED)) {
+                removed = true;
+            }
+        }
+
+        return removed;
+    }
+
+    /**
+     * Count the live entries, this walks the whole table so is only meant for metrics
+     *
+     * @return The number of values that haven't expired or been removed
+     */
+    public int size() {
+        long now = clock.getAsLong();
+        int size = 0;
+
+        for (int slot = 0; slot <= mask; slot++) {
+            if (keys.get(slot) != 0 && expiries.get(slot) > now) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The number of values that expired without being removed, counted when their slot gets reused
+     */
+    public long expiredCount() {
+        return expired.sum();
+    }
+
+    /**
+     * @return The number of live values that were replaced because the set was full
+     */
+    public long evictedCount() {
+        return evicted.sum();
+    }
+
+    /**
+     * @return The number of values the set can hold
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
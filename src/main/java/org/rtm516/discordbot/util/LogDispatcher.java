@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.rtm516.discordbot.DiscordBot;
+import org.rtm516.discordbot.storage.ServerSettings;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends log embeds for a guild in batches of up to 10 per message.
+ * Embeds are flushed once a full message is waiting or after a short delay, and only one message
+ * per guild is in flight at a time so Discord's rate limit slows the queue down rather than JDA
+ * building up a backlog of requests. When the queue is full new embeds are dropped and a count of
+ * them is sent with the next batch.
+ */
+public class LogDispatcher {
+
+    private static final int MAX_QUEUED = 200;
+    private static final long FLUSH_DELAY_MS = 1000;
+
+    private static final Map<Long, LogDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+
+    private final long guildID;
+    private final BatchSender sender;
+    private final ScheduledExecutorService scheduler;
+
+    private final Deque<MessageEmbed> queue = new ArrayDeque<>();
+    private int dropped;
+    private boolean flushScheduled;
+    private boolean sending;
+
+    private LogDispatcher(long guildID) {
+        this.guildID = guildID;
+        this.sender = new ChannelSender(guildID);
+        this.scheduler = DiscordBot.getGeneralThreadPool();
+    }
+
+    LogDispatcher(long guildID, BatchSender sender, ScheduledExecutorService scheduler) {
+        this.guildID = guildID;
+        this.sender = sender;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queue an embed to be sent to the log channel of a guild
+     *
+     * @param guild The guild to log to
+     * @param embed The embed to send
+     */
+    public static void send(Guild guild, MessageEmbed embed) {
+        DISPATCHERS.computeIfAbsent(guild.getIdLong(), LogDispatcher::new).enqueue(embed);
+    }
+
+    /**
+     * Forget the dispatcher for a guild, anything still queued for it is thrown away
+     *
+     * @param guildID The guild to forget
+     */
+    public static void remove(long guildID) {
+        LogDispatcher dispatcher = DISPATCHERS.remove(guildID);
+        if (dispatcher != null) {
+            dispatcher.clear();
+        }
+    }
+
+    /**
+     * Send everything still queued for every guild, waiting up to the timeout for it to go out.
+     * Used on shutdown, this needs the thread pool to still be running
+     *
+     * @param timeout How long to wait
+     * @param unit The unit of the timeout
+     */
+    public static void drain(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            boolean done = true;
+            for (LogDispatcher dispatcher : DISPATCHERS.values()) {
+                done &= dispatcher.flushIfIdle();
+            }
+
+            if (done) {
+                return;
+            }
+
+            if (System.nanoTime() > deadline) {
+                DiscordBot.LOGGER.warn("Timed out sending the remaining logs");
+                return;
+            }
+
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send the next batch now if nothing is in flight
+     *
+     * @return If there is nothing left to send
+     */
+    synchronized boolean flushIfIdle() {
+        if (!sending) {
+            flush();
+        }
+        return !sending && queue.isEmpty() && dropped == 0;
+    }
+
+    private synchronized void clear() {
+        queue.clear();
+        dropped = 0;
+    }
+
+    synchronized void enqueue(MessageEmbed embed) {
+        if (queue.size() >= MAX_QUEUED) {
+            dropped++;
+            return;
+        }
+
+        queue.add(embed);
+
+        // Once the current message is sent the rest of the queue goes with the next one
+        if (sending) {
+            return;
+        }
+
+        if (queue.size() >= Message.MAX_EMBED_COUNT) {
+            flush();
+        } else {
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::scheduledFlush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        if (!sending) {
+            flush();
+        }
+    }
+
+    private synchronized void sent() {
+        sending = false;
+
+        if (queue.size() >= Message.MAX_EMBED_COUNT) {
+            flush();
+        } else if (!queue.isEmpty() || dropped > 0) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Send the next batch, must be called while holding the lock
+     */
+    private void flush() {
+        if (queue.isEmpty() && dropped == 0) {
+            return;
+        }
+
+        if (!sender.isAvailable()) {
+            queue.clear();
+            dropped = 0;
+
+            // Nowhere to send to, a new dispatcher is made if logs are sent again later
+            DISPATCHERS.remove(guildID, this);
+            return;
+        }
+
+        List<MessageEmbed> batch = new ArrayList<>(Message.MAX_EMBED_COUNT);
+        int length = 0;
+
+        if (dropped > 0) {
+            MessageEmbed summary = new EmbedBuilder()
+                    .setTitle("Log messages dropped")
+                    .setDescription(dropped + " log messages were dropped as too many were sent at once")
+                    .setTimestamp(Instant.now())
+                    .setColor(BotColors.WARNING.getColor())
+                    .build();
+            batch.add(summary);
+            length += summary.getLength();
+            dropped = 0;
+        }
+
+        // Discord also limits the total length of all the embeds in a message
+        while (!queue.isEmpty() && batch.size() < Message.MAX_EMBED_COUNT
+                && (batch.isEmpty() || length + queue.peek().getLength() <= MessageEmbed.EMBED_MAX_LENGTH_BOT)) {
+            MessageEmbed embed = queue.poll();
+            batch.add(embed);
+            length += embed.getLength();
+        }
+
+        sending = true;
+        try {
+            sender.send(batch, this::sent);
+        } catch (RuntimeException e) {
+            // JDA checks permissions before queueing, if that fails the batch is lost but the queue has to keep moving
+            DiscordBot.LOGGER.warn("Failed to send logs for guild " + guildID, e);
+            sending = false;
+
+            // Try the rest after the usual delay instead of straight away, the next send will likely fail too
+            if (!queue.isEmpty() || dropped > 0) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    /**
+     * @return If the dispatcher is waiting for a message to be sent
+     */
+    synchronized boolean isSending() {
+        return sending;
+    }
+
+    /**
+     * Where the batches of embeds go, swapped out in tests
+     */
+    interface BatchSender {
+        /**
+         * @return If there is somewhere to send logs, queued logs are thrown away if not
+         */
+        boolean isAvailable();
+
+        /**
+         * Send a batch of embeds, this can throw if the request couldn't be queued
+         *
+         * @param batch The embeds to send
+         * @param done Called once the request has finished, whether it worked or not
+         */
+        void send(List<MessageEmbed> batch, Runnable done);
+    }
+
+    /**
+     * Sends to the guild's log channel
+     */
+    private record ChannelSender(long guildID) implements BatchSender {
+        @Override
+        public boolean isAvailable() {
+            return getLogChannel() != null;
+        }
+
+        @Override
+        public void send(List<MessageEmbed> batch, Runnable done) {
+            TextChannel channel = getLogChannel();
+            if (channel == null) {
+                done.run();
+                return;
+            }
+
+            channel.sendMessageEmbeds(batch).queue(message -> done.run(), throwable -> {
+                DiscordBot.LOGGER.warn("Failed to send logs for guild " + guildID, throwable);
+                done.run();
+            });
+        }
+
+        private TextChannel getLogChannel() {
+            Guild guild = DiscordBot.getJDA().getGuildById(guildID);
+            if (guild == null) {
+                return null;
+            }
+
+            return ServerSettings.getLogChannel(guild);
+        }
+    }
+}
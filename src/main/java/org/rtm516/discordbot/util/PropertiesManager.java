@@ -83,6 +83,62 @@ public class PropertiesManager {
         return properties.getProperty("db-pass");
     }
 
+    /**
+     * @return Max number of database connections to keep open
+     */
+    public static int getDatabasePoolSize() {
+        return Integer.parseInt(properties.getProperty("db-pool-size", "4"));
+    }
+
+    /**
+     * @return Path of an SQLite database to import into a new embedded store
+     */
+    public static String getDatabaseImport() {
+        return properties.getProperty("db-import");
+    }
+
+    /**
+     * @return Approximate number of megabytes the message cache for edit and delete logs can use
+     */
+    public static int getMessageCacheSize() {
+        return Integer.parseInt(properties.getProperty("message-cache-size", "64"));
+    }
+
+    /**
+     * @return Directory to keep the on disk message log in, the log is disabled if this isn't set
+     */
+    public static String getMessageLogDirectory() {
+        return properties.getProperty("message-log-dir");
+    }
+
+    /**
+     * @return File the list of known phishing domains is kept in
+     */
+    public static String getPhishingDomainsFile() {
+        return properties.getProperty("phishing-domains-file", "phishing-domains.txt");
+    }
+
+    /**
+     * @return URL to refresh the phishing domain list from, the list isn't refreshed if this isn't set
+     */
+    public static String getPhishingDomainsFeed() {
+        return properties.getProperty("phishing-domains-feed");
+    }
+
+    /**
+     * @return Minutes between refreshes of the phishing domain list
+     */
+    public static int getPhishingDomainsRefresh() {
+        return Integer.parseInt(properties.getProperty("phishing-domains-refresh", "60"));
+    }
+
+    /**
+     * @return If links that aren't otherwise blocked should be checked with anti-fish
+     */
+    public static boolean isAntiFishEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("anti-fish", "true"));
+    }
+
     /**
      * @return GitHub OAuth token
      */
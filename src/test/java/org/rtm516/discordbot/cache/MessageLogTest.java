@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MessageLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong time = new AtomicLong(1_700_000_000_000L);
+
+    private MessageLog open() throws IOException {
+        return new MessageLog(directory, 1, TimeUnit.HOURS, time::get);
+    }
+
+    @Test
+    public void testAppendAndGet() throws IOException {
+        MessageLog log = open();
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "hello"));
+        log.append(2, new CachedMessage(11, 21, true, "bot", "https://example.com/avatar.png", "beep"));
+
+        CachedMessage message = log.get(1);
+        assertNotNull(message);
+        assertEquals(10L, message.getAuthorId());
+        assertEquals(20L, message.getChannelId());
+        assertFalse(message.isBot());
+        assertEquals("user", message.getAuthorTag());
+        assertNull(message.getAvatarUrl());
+        assertEquals("hello", message.getContent());
+
+        assertEquals("https://example.com/avatar.png", log.get(2).getAvatarUrl());
+        assertNull(log.get(3));
+
+        // Later snapshots replace earlier ones
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "edited"));
+        assertEquals("edited", log.get(1).getContent());
+        assertEquals(2, log.size());
+
+        log.remove(2);
+        assertNull(log.get(2));
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    public void testReplayAfterReopen() throws IOException {
+        MessageLog log = open();
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "hello"));
+        log.append(2, new CachedMessage(11, 21, false, "other", null, "deleted"));
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "edited"));
+        log.remove(2);
+
+        MessageLog reopened = open();
+        assertEquals(1, reopened.size());
+        assertEquals("edited", reopened.get(1).getContent());
+        assertNull(reopened.get(2));
+
+        // New records go after the replayed ones
+        reopened.append(3, new CachedMessage(12, 22, false, "new", null, "after"));
+        assertEquals("edited", reopened.get(1).getContent());
+        assertEquals("after", reopened.get(3).getContent());
+    }
+
+    @Test
+    public void testTornRecordIgnored() throws IOException {
+        CachedMessage first = new CachedMessage(10, 20, false, "user", null, "hello");
+        MessageLog log = open();
+        log.append(1, first);
+        log.append(2, new CachedMessage(11, 21, false, "other", null, "torn"));
+
+        // Clear the length of the second record, as if the process died before it was written
+        int firstSize = Integer.BYTES + Long.BYTES + Byte.BYTES + Long.BYTES * 2
+                + Short.BYTES + first.getAuthorTagBytes().length
+                + Short.BYTES
+                + Integer.BYTES + first.getContentBytes().length;
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES), firstSize);
+        }
+
+        MessageLog reopened = open();
+        assertEquals(1, reopened.size());
+        assertEquals("hello", reopened.get(1).getContent());
+        assertNull(reopened.get(2));
+
+        // The torn record is overwritten by the next append
+        reopened.append(3, new CachedMessage(12, 22, false, "new", null, "after"));
+        assertEquals("after", open().get(3).getContent());
+    }
+
+    @Test
+    public void testExpireDropsOldSegments() throws IOException {
+        MessageLog log = open();
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "old"));
+
+        // Past the retention plus the segment's own hour, the next append starts a new segment
+        time.addAndGet(TimeUnit.HOURS.toMillis(2) + 1);
+        log.append(2, new CachedMessage(11, 21, false, "user", null, "new"));
+        assertEquals(2, segments().size());
+
+        log.expire();
+        assertNull(log.get(1));
+        assertEquals("new", log.get(2).getContent());
+        assertEquals(1, log.size());
+        assertEquals(1, segments().size());
+
+        // Still appendable after the segment it was writing to could have been dropped
+        log.append(3, new CachedMessage(12, 22, false, "user", null, "newer"));
+        assertEquals("newer", log.get(3).getContent());
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        MessageLog log = open();
+        log.append(1, new CachedMessage(10, 20, false, "user", null, "hello"));
+        log.close();
+
+        // Nothing touches the unmapped segments after closing
+        assertNull(log.get(1));
+        log.append(2, new CachedMessage(11, 21, false, "user", null, "ignored"));
+        log.remove(1);
+        log.expire();
+        assertEquals(0, log.size());
+
+        MessageLog reopened = open();
+        assertEquals("hello", reopened.get(1).getContent());
+        assertNull(reopened.get(2));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class WordFilterTest {
+
+    private static final WordFilter FILTER = WordFilter.compile(List.of("he", "she", "hers", "dio bestia", "coglion[ei]", "\u0445\u0435\u0440(\u0443|\u0430\u043c|\u0430)?", ""));
+
+    private static String find(String input) {
+        return FILTER.find(TextNormaliser.normalise(input).folded());
+    }
+
+    @Test
+    public void testWholeWords() {
+        assertEquals("she", find("she"));
+        assertEquals("he", find("so he said"));
+        assertEquals("hers", find("that is hers"));
+        assertEquals("dio bestia", find("oh dio bestia"));
+    }
+
+    @Test
+    public void testPartialWords() {
+        assertNull(find("ushers"));
+        assertNull(find("shell"));
+        assertNull(find("the"));
+        assertNull(find("dio bestial"));
+    }
+
+    @Test
+    public void testOverlappingWords() {
+        // "hers" isn't a word here but the "he" suffix of "she" is reached through the fail links
+        assertEquals("he", find("ushe he"));
+        assertEquals("she", find("ushers she"));
+    }
+
+    @Test
+    public void testRegexEntries() {
+        assertEquals("coglion[ei]", find("sei un coglione"));
+        assertEquals("\u0445\u0435\u0440(\u0443|\u0430\u043c|\u0430)?", find("\u0445\u0435\u0440\u0430\u043c"));
+        assertNull(find("coglionx"));
+    }
+
+    @Test
+    public void testNormalisedInput() {
+        assertEquals("she", find("SHE"));
+        assertEquals("she", find("sh\u00e9"));
+        assertEquals("he", find("\u0445\u0435\u0440\u0430\u043c he"));
+        assertEquals("coglion[ei]", find("COGLIONE"));
+        assertNull(find("sh\u0435ll"));
+    }
+
+    @Test
+    public void testEmptyEntriesIgnored() {
+        assertEquals(6, FILTER.size());
+        assertNull(find(""));
+        assertNull(find("  "));
+    }
+}
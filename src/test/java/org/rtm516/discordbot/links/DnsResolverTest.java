@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DnsResolverTest {
+
+    private final AtomicLong time = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return time.get();
+        }
+    };
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final HostResolver stub = host -> {
+        lookups.incrementAndGet();
+        if (host.equals("good.example")) {
+            return new InetAddress[] { InetAddress.getByAddress(host, new byte[] { 1, 2, 3, 4 }) };
+        }
+        throw new UnknownHostException(host);
+    };
+
+    @Test
+    public void testPositiveCache() {
+        DnsResolver resolver = new DnsResolver(stub, Runnable::run, 60, 10, TimeUnit.SECONDS, ticker);
+
+        InetAddress[] addresses = resolver.resolve("good.example").join();
+        assertEquals(1, addresses.length);
+        assertEquals(1, lookups.get());
+
+        resolver.resolve("GOOD.example").join();
+        assertEquals(1, lookups.get(), "Second lookup should be cached");
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        resolver.resolve("good.example").join();
+        assertEquals(2, lookups.get(), "Entry should have expired");
+    }
+
+    @Test
+    public void testNegativeCache() {
+        DnsResolver resolver = new DnsResolver(stub, Runnable::run, 60, 10, TimeUnit.SECONDS, ticker);
+
+        assertEquals(0, resolver.resolve("bad.example").join().length);
+        assertEquals(0, resolver.resolve("bad.example").join().length);
+        assertEquals(1, lookups.get());
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        resolver.resolve("bad.example").join();
+        assertEquals(2, lookups.get(), "Negative entry should expire sooner");
+    }
+
+    @Test
+    public void testInflightShared() {
+        List<Runnable> pending = new ArrayList<>();
+        DnsResolver resolver = new DnsResolver(stub, pending::add, 60, 10, TimeUnit.SECONDS, ticker);
+
+        CompletableFuture<InetAddress[]> first = resolver.resolve("good.example");
+        CompletableFuture<InetAddress[]> second = resolver.resolve("good.example");
+        assertSame(first, second);
+        assertFalse(first.isDone());
+        assertEquals(1, pending.size());
+
+        pending.get(0).run();
+        assertTrue(first.isDone());
+        assertEquals(1, lookups.get());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DomainHashSetTest {
+
+    @Test
+    public void testContains() {
+        DomainHashSet set = DomainHashSet.of(List.of("steamcommunlty.com", "Discord-Gift.ru", "steamcommunlty.com", " "));
+
+        assertEquals(2, set.size());
+        assertTrue(set.contains("steamcommunlty.com"));
+        assertTrue(set.contains("discord-gift.RU"));
+        assertFalse(set.contains("steamcommunity.com"));
+    }
+
+    @Test
+    public void testParentDomains() {
+        DomainHashSet set = DomainHashSet.of(List.of("discord-gift.ru", "ru"));
+
+        assertEquals("discord-gift.ru", set.match("discord-gift.ru"));
+        assertEquals("discord-gift.ru", set.match("login.nitro.discord-gift.ru"));
+        assertNull(set.match("example.ru"), "Top level domains should never match on their own");
+        assertNull(set.match("gift.ru"));
+        assertNull(DomainHashSet.EMPTY.match("discord-gift.ru"));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DomainTokenizerTest {
+    /**
+     * The pattern the tokenizer replaced
+     */
+    private static final Pattern DOMAIN_PATTERN = Pattern.compile("(?:[A-Za-z0-9](?:[A-Za-z0-9-]{0,61}[A-Za-z0-9])?\\.)+[A-Za-z0-9][A-Za-z0-9-]{0,61}[A-Za-z0-9]");
+
+    @Test
+    public void testFindsDomains() {
+        assertEquals(List.of("www.example.com", "page.html"), tokenize("see https://www.example.com/page.html?a=b"));
+        assertEquals(List.of("discord-gift.ru"), tokenize("free nitro at -discord-gift.ru- now"));
+        assertEquals(List.of("a.bc"), tokenize("a.bc-.d"));
+        assertEquals(List.of(), tokenize("Hello there. How are you?"));
+    }
+
+    @Test
+    public void testNoDot() {
+        assertFalse(DomainTokenizer.mightContainDomain("no domains in here"));
+        assertNull(new DomainTokenizer("no domains in here").next());
+    }
+
+    @Test
+    public void testMatchesPattern() {
+        Random random = new Random(516);
+        String alphabet = "ab1.-. /_";
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            List<String> expected = new ArrayList<>();
+            Matcher matcher = DOMAIN_PATTERN.matcher(text);
+            while (matcher.find()) {
+                expected.add(matcher.group());
+            }
+
+            assertEquals(expected, tokenize(text.toString()), text.toString());
+        }
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> domains = new ArrayList<>();
+        DomainTokenizer tokenizer = new DomainTokenizer(text);
+        String domain;
+        while ((domain = tokenizer.next()) != null) {
+            domains.add(domain);
+        }
+        return domains;
+    }
+}
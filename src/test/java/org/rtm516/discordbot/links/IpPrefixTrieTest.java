@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IpPrefixTrieTest {
+
+    @Test
+    public void testExactAddress() throws UnknownHostException {
+        IpPrefixTrie trie = IpPrefixTrie.compile(List.of("1.2.3.4"));
+
+        assertEquals("1.2.3.4", trie.match(InetAddress.getByName("1.2.3.4")));
+        assertNull(trie.match(InetAddress.getByName("1.2.3.5")));
+    }
+
+    @Test
+    public void testCidrRanges() throws UnknownHostException {
+        IpPrefixTrie trie = IpPrefixTrie.compile(List.of("10.0.0.0/8", "10.1.0.0/16", "2001:db8::/32"));
+
+        assertEquals("10.0.0.0/8", trie.match(InetAddress.getByName("10.200.3.4")));
+        assertEquals("10.1.0.0/16", trie.match(InetAddress.getByName("10.1.3.4")), "Most specific range should win");
+        assertNull(trie.match(InetAddress.getByName("11.0.0.1")));
+
+        assertEquals("2001:db8::/32", trie.match(InetAddress.getByName("2001:db8:1234::1")));
+        assertNull(trie.match(InetAddress.getByName("2001:db9::1")));
+    }
+
+    @Test
+    public void testInvalidEntriesSkipped() throws UnknownHostException {
+        IpPrefixTrie trie = IpPrefixTrie.compile(List.of("example.com", "1.2.3.999", "1.2.3.0/33", "1.2.3", ""));
+
+        assertTrue(trie.isEmpty());
+        assertNull(trie.match(InetAddress.getByName("1.2.3.4")));
+    }
+
+    @Test
+    public void testParseNeverResolves() {
+        // Both of these would go to DNS through InetAddress.getByName
+        assertNull(IpPrefixTrie.parseAddress("g::1"));
+        assertNull(IpPrefixTrie.parseAddress("example.com:80"));
+
+        assertEquals(16, IpPrefixTrie.parseAddress("2001:db8::1").length);
+        assertEquals(4, IpPrefixTrie.parseAddress("1.2.3.4").length);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.links;
+
+import org.junit.jupiter.api.Test;
+import org.rtm516.discordbot.util.DicesCoefficient;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TyposquatIndexTest {
+    private static final List<String> SAFE = List.of("discord.com", "discord.gg", "discordapp.com", "steamcommunity.com", "github.com", "geysermc.org");
+
+    @Test
+    public void testSafeDomains() {
+        TyposquatIndex index = TyposquatIndex.compile(SAFE);
+
+        assertTrue(index.isSafe("discord.com"));
+        assertTrue(index.isSafe("cdn.discordapp.com"));
+        assertFalse(index.isSafe("notdiscord.com"));
+        assertFalse(index.isSafe("com"));
+        assertNull(index.findSimilar("ptb.discord.com"));
+    }
+
+    @Test
+    public void testSimilarDomains() {
+        TyposquatIndex index = TyposquatIndex.compile(SAFE);
+
+        assertEquals("steamcommunity.com", index.findSimilar("steamcommunlty.com"));
+        assertEquals("discord.gg", index.findSimilar("dlscord.gg"));
+        assertNull(index.findSimilar("example.org"));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        TyposquatIndex index = TyposquatIndex.compile(SAFE);
+
+        String[] domains = { "steamcommunlty.com", "discord-nitro.ru", "disc0rd.gift", "gihtub.com", "geyser.org", "aaaa.aa",
+                "discordd.ru", "steam.ru", "github.io", "cdn.geysermc.org", "x.y", "a", "discord.comm" };
+        for (String domain : domains) {
+            assertEquals(bruteForce(domain), index.findSimilar(domain), domain);
+        }
+    }
+
+    /**
+     * The check the index replaces
+     */
+    private static String bruteForce(String domain) {
+        for (String checkDomain : SAFE) {
+            if (domain.endsWith("." + checkDomain) || domain.equals(checkDomain)) {
+                return null;
+            }
+        }
+        for (String checkDomain : SAFE) {
+            double score = DicesCoefficient.diceCoefficientOptimized(domain, checkDomain);
+            if (domain.endsWith(".ru") ? (Math.round(score * 10.0) / 10.0) >= 0.5f : score >= 0.6f) {
+                return checkDomain;
+            }
+        }
+        return null;
+    }
+}
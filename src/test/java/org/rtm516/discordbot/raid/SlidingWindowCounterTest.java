@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.raid;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SlidingWindowCounterTest {
+
+    private final AtomicLong time = new AtomicLong(1_000_000);
+
+    @Test
+    public void testCountsWithinWindow() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, time::get);
+
+        for (int i = 0; i < 5; i++) {
+            counter.increment();
+            time.addAndGet(1000);
+        }
+        assertEquals(5, counter.sum());
+
+        // The first events fall out of the window one bucket at a time
+        time.addAndGet(4000);
+        assertEquals(5, counter.sum());
+        time.addAndGet(1000);
+        assertEquals(4, counter.sum());
+
+        time.addAndGet(10_000);
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    public void testStaleBucketsReset() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10, time::get);
+
+        counter.increment();
+        counter.increment();
+
+        // Land on the same bucket a full window later
+        time.addAndGet(10_000);
+        counter.increment();
+        assertEquals(1, counter.sum());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BigramProfileTest {
+
+    @Test
+    public void testMatchesDicesCoefficient() {
+        String[] words = { "geyser", "geysermc", "floodgate", "GG", "GGGGGGGG", "a", "", "proxy", "provided", "bedrock", "rock" };
+        for (String first : words) {
+            BigramProfile profile = BigramProfile.of(first);
+            for (String second : words) {
+                if (first == second && first.length() < 2) {
+                    // DicesCoefficient gives 1 for the same object even when it has no bigrams
+                    continue;
+                }
+                assertEquals(DicesCoefficient.diceCoefficientOptimized(first, second), profile.score(second), 1e-12, first + " / " + second);
+            }
+        }
+    }
+
+    @Test
+    public void testThresholdMatchesScore() {
+        Random random = new Random(516);
+        for (int i = 0; i < 5000; i++) {
+            String first = randomString(random);
+            String second = randomString(random);
+            double threshold = random.nextInt(10) / 10d;
+
+            BigramProfile profile = BigramProfile.of(first);
+            assertEquals(DicesCoefficient.diceCoefficientOptimized(first, second) > threshold, profile.isAbove(second, threshold), first + " / " + second);
+        }
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        BigramProfile profile = BigramProfile.ofIgnoreCase("geyser");
+
+        assertEquals(1d, profile.score("GeYsEr"));
+        assertTrue(profile.isAbove("GEYSERMC", 0.2d));
+        assertFalse(BigramProfile.of("geyser").isAbove("GEYSER", 0.2d));
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[random.nextInt(10)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExpiringLongSetTest {
+
+    private final AtomicLong time = new AtomicLong(1000);
+
+    @Test
+    public void testAddAndExpire() {
+        ExpiringLongSet set = new ExpiringLongSet(16, 100, time::get);
+
+        set.add(1234567890123456789L);
+        assertTrue(set.contains(1234567890123456789L));
+        assertFalse(set.contains(42L));
+        assertEquals(1, set.size());
+
+        time.addAndGet(99);
+        assertTrue(set.contains(1234567890123456789L));
+
+        time.addAndGet(1);
+        assertFalse(set.contains(1234567890123456789L), "Entry should have expired");
+        assertEquals(0, set.size());
+    }
+
+    @Test
+    public void testRemove() {
+        ExpiringLongSet set = new ExpiringLongSet(16, 100, time::get);
+
+        set.add(5L);
+        set.add(6L);
+        assertTrue(set.remove(5L));
+        assertFalse(set.remove(5L));
+        assertFalse(set.contains(5L));
+        assertTrue(set.contains(6L));
+    }
+
+    @Test
+    public void testExpiredSlotsReused() {
+        ExpiringLongSet set = new ExpiringLongSet(16, 100, time::get);
+
+        // Fill the table many times over, expired slots should be reused
+        for (long i = 1; i <= 1000; i++) {
+            set.add(i);
+            time.addAndGet(10);
+            assertTrue(set.contains(i));
+        }
+
+        assertEquals(9, set.size());
+        assertFalse(set.contains(1L));
+        assertEquals(0, set.evictedCount());
+        assertTrue(set.expiredCount() > 0);
+    }
+
+    @Test
+    public void testFullTableReplacesOldest() {
+        ExpiringLongSet set = new ExpiringLongSet(4, 1000, time::get);
+
+        for (long i = 1; i <= 4; i++) {
+            set.add(i);
+            time.incrementAndGet();
+        }
+        set.add(5L);
+
+        assertFalse(set.contains(1L), "Oldest entry should have been replaced");
+        assertEquals(1, set.evictedCount());
+        for (long i = 2; i <= 5; i++) {
+            assertTrue(set.contains(i));
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020-2024 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/GeyserDiscordBot
+ */
+
+package org.rtm516.discordbot.util;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogDispatcherTest {
+
+    private static MessageEmbed embed(int i) {
+        return new EmbedBuilder().setDescription("Log " + i).build();
+    }
+
+    @Test
+    public void testSendFailureDoesNotWedge() {
+        List<List<MessageEmbed>> sent = new ArrayList<>();
+        boolean[] fail = { true };
+
+        LogDispatcher.BatchSender sender = new LogDispatcher.BatchSender() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public void send(List<MessageEmbed> batch, Runnable done) {
+                if (fail[0]) {
+                    throw new IllegalStateException("Missing permission");
+                }
+                sent.add(batch);
+                done.run();
+            }
+        };
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            LogDispatcher dispatcher = new LogDispatcher(1, sender, scheduler);
+
+            // A full batch is sent straight away and fails
+            for (int i = 0; i < 10; i++) {
+                dispatcher.enqueue(embed(i));
+            }
+            assertFalse(dispatcher.isSending(), "A failed send should not leave the dispatcher waiting");
+            assertTrue(sent.isEmpty());
+
+            // Once sending works again the next batch goes out
+            fail[0] = false;
+            for (int i = 0; i < 10; i++) {
+                dispatcher.enqueue(embed(i));
+            }
+            assertEquals(1, sent.size());
+            assertEquals(10, sent.get(0).size());
+            assertFalse(dispatcher.isSending());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSendFailureFlushesRestOfQueue() throws InterruptedException {
+        List<List<MessageEmbed>> sent = new CopyOnWriteArrayList<>();
+        List<Runnable> pending = new ArrayList<>();
+        boolean[] fail = { false };
+
+        LogDispatcher.BatchSender sender = new LogDispatcher.BatchSender() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public void send(List<MessageEmbed> batch, Runnable done) {
+                if (fail[0]) {
+                    fail[0] = false;
+                    throw new IllegalStateException("Missing permission");
+                }
+                sent.add(batch);
+                pending.add(done);
+            }
+        };
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            LogDispatcher dispatcher = new LogDispatcher(1, sender, scheduler);
+
+            // Hold the first batch in flight while more than a message's worth queues up behind it
+            for (int i = 0; i < 25; i++) {
+                dispatcher.enqueue(embed(i));
+            }
+            assertEquals(1, sent.size());
+            assertTrue(dispatcher.isSending());
+
+            // Let the flush scheduled by the first few logs pass so it can't pick up the rest
+            Thread.sleep(1500);
+
+            // The next batch fails, the 5 after it still have to go out without any new logs arriving
+            fail[0] = true;
+            pending.remove(0).run();
+            assertFalse(dispatcher.isSending());
+
+            for (int i = 0; i < 50 && sent.size() < 2; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(2, sent.size());
+            assertEquals(5, sent.get(1).size());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFlushIfIdleSendsQueued() {
+        List<List<MessageEmbed>> sent = new ArrayList<>();
+        List<Runnable> pending = new ArrayList<>();
+
+        LogDispatcher.BatchSender sender = new LogDispatcher.BatchSender() {
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public void send(List<MessageEmbed> batch, Runnable done) {
+                sent.add(batch);
+                pending.add(done);
+            }
+        };
+
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            LogDispatcher dispatcher = new LogDispatcher(1, sender, scheduler);
+            for (int i = 0; i < 3; i++) {
+                dispatcher.enqueue(embed(i));
+            }
+
+            // Sent straight away rather than waiting for the scheduled flush, but not done until the send finishes
+            assertFalse(dispatcher.flushIfIdle());
+            assertEquals(1, sent.size());
+            assertEquals(3, sent.get(0).size());
+
+            pending.remove(0).run();
+            assertTrue(dispatcher.flushIfIdle());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}